@@ -0,0 +1,105 @@
+package org.trimble.plugins.unittest.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.config.Settings;
+import org.trimble.plugins.unittest.parsers.NUnitTestResultsParser;
+import org.trimble.plugins.unittest.parsers.UnitTestResults;
+import org.trimble.plugins.unittest.parsers.XunitReportParser;
+
+/**
+ * Parse time of the report parsers over generated corpora
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int testCases;
+
+  private File dir;
+  private File xunitReport;
+  private File nunitReport;
+  private XunitReportParser xunitParser;
+  private XunitReportParser xunitFastScanner;
+  private XunitReportParser xunitSplit;
+  private ExecutorService splitExecutor;
+  private NUnitTestResultsParser nunitParser;
+
+  @Setup
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("unittest-bench").toFile();
+    xunitReport = ReportCorpus.xunit(dir, testCases);
+    nunitReport = ReportCorpus.nunit(dir, testCases);
+    xunitParser = new XunitReportParser(new Settings());
+    Settings fastScannerSettings = new Settings();
+    fastScannerSettings.setProperty(XunitReportParser.FAST_SCANNER_KEY, true);
+    xunitFastScanner = new XunitReportParser(fastScannerSettings);
+    Settings splitSettings = new Settings();
+    splitSettings.setProperty(XunitReportParser.SPLIT_THRESHOLD_KEY, 1);
+    xunitSplit = new XunitReportParser(splitSettings);
+    int cores = Runtime.getRuntime().availableProcessors();
+    splitExecutor = Executors.newFixedThreadPool(cores);
+    xunitSplit.splitExecutor(splitExecutor, cores);
+    nunitParser = new NUnitTestResultsParser();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    splitExecutor.shutdownNow();
+    ReportCorpus.delete(dir);
+  }
+
+  @Benchmark
+  public UnitTestResults xunitParse() {
+    UnitTestResults results = new UnitTestResults();
+    xunitParser.parse(xunitReport, results);
+    return results;
+  }
+
+  @Benchmark
+  public UnitTestResults xunitFastScanner() {
+    UnitTestResults results = new UnitTestResults();
+    xunitFastScanner.parse(xunitReport, results);
+    return results;
+  }
+
+  /**
+   * Reports of 1MB and more are split at their top level test suites and
+   * parsed on all the cores
+   */
+  @Benchmark
+  public UnitTestResults xunitSplitParse() {
+    UnitTestResults results = new UnitTestResults();
+    xunitSplit.parse(xunitReport, results);
+    return results;
+  }
+
+  @Benchmark
+  public UnitTestResults nunitParse() {
+    UnitTestResults results = new UnitTestResults();
+    nunitParser.parse(nunitReport, results);
+    return results;
+  }
+}
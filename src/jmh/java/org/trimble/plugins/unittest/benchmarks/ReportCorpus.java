@@ -0,0 +1,56 @@
+package org.trimble.plugins.unittest.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.trimble.plugins.unittest.parsers.ReportGenerator;
+
+/**
+ * Writes the report corpora used by the benchmarks, reports come from the
+ * test tree {@link ReportGenerator} with its default outcome ratios
+ */
+final class ReportCorpus {
+
+  private ReportCorpus() {
+  }
+
+  static File xunit(File dir, long testCases) throws IOException {
+    File report = new File(dir, "xunit-" + testCases + ".xml");
+    new ReportGenerator().testCases(testCases).write(ReportGenerator.Format.XUNIT, report);
+    return report;
+  }
+
+  static File nunit(File dir, long testCases) throws IOException {
+    File report = new File(dir, "nunit-" + testCases + ".xml");
+    new ReportGenerator().testCases(testCases).write(ReportGenerator.Format.NUNIT2, report);
+    return report;
+  }
+
+  static File tree(File root, int depth, int fanOut, int reportsPerDir) throws IOException {
+    populate(root, depth, fanOut, reportsPerDir);
+    return root;
+  }
+
+  private static void populate(File dir, int depth, int fanOut, int reportsPerDir) throws IOException {
+    Files.createDirectories(dir.toPath());
+    for (int i = 0; i < reportsPerDir; i++) {
+      Files.createFile(new File(dir, "TEST-" + i + ".xml").toPath());
+      Files.createFile(new File(dir, "output-" + i + ".log").toPath());
+    }
+    if (depth > 0) {
+      for (int i = 0; i < fanOut; i++) {
+        populate(new File(dir, "d" + i), depth - 1, fanOut, reportsPerDir);
+      }
+    }
+  }
+
+  static void delete(File file) throws IOException {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    Files.deleteIfExists(file.toPath());
+  }
+}
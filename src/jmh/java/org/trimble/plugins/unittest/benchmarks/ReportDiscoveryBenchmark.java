@@ -0,0 +1,67 @@
+package org.trimble.plugins.unittest.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.config.Settings;
+import org.trimble.plugins.unittest.UnitTestImportSensor;
+
+/**
+ * Report discovery over directory trees where only a small branch holds the
+ * reports, the shape of a build output tree
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReportDiscoveryBenchmark {
+
+  /**
+   * depth:fanOut of the generated build output tree
+   */
+  @Param({"3:10", "4:10", "5:8"})
+  public String shape;
+
+  @Param({"reports/**/TEST-*.xml", "**/TEST-*.xml"})
+  public String pattern;
+
+  private File baseDir;
+  private Settings settings;
+
+  @Setup
+  public void setUp() throws IOException {
+    String[] dimensions = shape.split(":");
+    baseDir = Files.createTempDirectory("unittest-bench").toFile();
+    ReportCorpus.tree(new File(baseDir, "build"), Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), 2);
+    ReportCorpus.tree(new File(baseDir, "reports"), 2, 4, 5);
+    settings = new Settings();
+    settings.setProperty(UnitTestImportSensor.REPORT_PATH_KEY, pattern);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    ReportCorpus.delete(baseDir);
+  }
+
+  @Benchmark
+  public List<File> getReports() {
+    return UnitTestImportSensor.getReports(settings, baseDir, UnitTestImportSensor.REPORT_PATH_KEY);
+  }
+}
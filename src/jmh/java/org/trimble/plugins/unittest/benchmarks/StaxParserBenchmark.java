@@ -0,0 +1,77 @@
+package org.trimble.plugins.unittest.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLStreamException;
+
+import org.codehaus.staxmate.in.SMHierarchicCursor;
+import org.codehaus.staxmate.in.SMInputCursor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trimble.plugins.unittest.utils.StaxParser;
+import org.trimble.plugins.unittest.utils.XmlFactories;
+
+/**
+ * Raw StaxParser throughput, with and without the ISO control chars filter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StaxParserBenchmark {
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int testCases;
+
+  @Param({"false", "true"})
+  public boolean isoControlCharsAware;
+
+  private File dir;
+  private File report;
+  private XmlFactories factories;
+
+  @Setup
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("unittest-bench").toFile();
+    report = ReportCorpus.xunit(dir, testCases);
+    factories = new XmlFactories();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    ReportCorpus.delete(dir);
+  }
+
+  @Benchmark
+  public int parse() throws XMLStreamException {
+    ElementCounter counter = new ElementCounter();
+    new StaxParser(factories, counter, isoControlCharsAware).parse(report);
+    return counter.elements;
+  }
+
+  private static class ElementCounter implements StaxParser.XmlStreamHandler {
+    private int elements = 0;
+
+    @Override
+    public void stream(SMHierarchicCursor rootCursor) throws XMLStreamException {
+      SMInputCursor cursor = rootCursor.advance().descendantElementCursor();
+      while (cursor.getNext() != null) {
+        elements++;
+      }
+    }
+  }
+}
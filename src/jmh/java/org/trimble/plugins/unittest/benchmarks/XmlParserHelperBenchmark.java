@@ -0,0 +1,65 @@
+package org.trimble.plugins.unittest.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.trimble.plugins.unittest.utils.XmlParserHelper;
+
+/**
+ * Attribute lookups on the root element of a NUnit report, the access pattern
+ * of NUnitTestResultsParser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XmlParserHelperBenchmark {
+
+  private static final String[] ATTRIBUTES = {"total", "failures", "failed", "inconclusive", "errors",
+    "ignored", "not-run", "skipped", "passed", "name", "invalid", "date", "time", "missing"};
+
+  private File dir;
+  private XmlParserHelper helper;
+
+  @Setup
+  public void setUp() throws IOException, XMLStreamException {
+    dir = Files.createTempDirectory("unittest-bench").toFile();
+    helper = new XmlParserHelper(ReportCorpus.nunit(dir, 10));
+    helper.nextTag();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    helper.close();
+    ReportCorpus.delete(dir);
+  }
+
+  @Benchmark
+  public void attributeLookup(Blackhole blackhole) {
+    for (String attribute : ATTRIBUTES) {
+      blackhole.consume(helper.getAttribute(attribute));
+    }
+  }
+
+  @Benchmark
+  public int requiredIntAttribute() throws XMLStreamException {
+    return helper.getRequiredIntAttribute("total") + helper.getRequiredIntAttribute("failures");
+  }
+}
@@ -0,0 +1,137 @@
+package org.trimble.plugins.unittest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.trimble.plugins.unittest.parsers.ReportStatistics;
+import org.trimble.plugins.unittest.parsers.ReportStatistics.Phase;
+
+/**
+ * Collects the statistics of every report imported by an analysis and
+ * writes them, with the report discovery time, to a JSON file in the scanner
+ * working directory and to the debug log.
+ */
+public class ImportStatistics {
+  public static final Logger LOG = Loggers.get(ImportStatistics.class);
+  static final String STATISTICS_FILE = "unittest-import-statistics.json";
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  private final long startNanos = System.nanoTime();
+  private final Queue<ReportStatistics> reports = new ConcurrentLinkedQueue<>();
+  private long discoveryNanos = 0;
+
+  public void discoveryTime(long elapsedNanos) {
+    this.discoveryNanos = elapsedNanos;
+  }
+
+  /**
+   * Records the statistics of a report, safe to call from any thread
+   */
+  public void add(ReportStatistics statistics) {
+    reports.add(statistics);
+  }
+
+  Collection<ReportStatistics> reports() {
+    return reports;
+  }
+
+  /**
+   * Returns the bytes allocated so far by the current thread, -1 when the
+   * JVM does not measure them
+   */
+  public static long allocatedBytes() {
+    if (THREADS instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+      if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Logs the statistics and writes them to the given directory
+   */
+  public void save(File workDir) {
+    long totalNanos = System.nanoTime() - startNanos;
+    List<ReportStatistics> sorted = new ArrayList<>(reports);
+    if (LOG.isDebugEnabled()) {
+      for (ReportStatistics report : sorted) {
+        LOG.debug("Imported '{}': {} parser, {} bytes, {} test cases, detection {} ms, transform {} ms, parse {} ms,"
+          + " {} test cases/s, {} bytes allocated", report.report(), report.parser(), report.bytes(), report.testCases(),
+          millis(report.nanos(Phase.DETECTION)), millis(report.nanos(Phase.TRANSFORM)), millis(report.nanos(Phase.PARSE)),
+          report.testCasesPerSecond(), report.allocatedBytes());
+      }
+      LOG.debug("Imported '{}' reports in {} ms, discovery {} ms", sorted.size(), millis(totalNanos), millis(discoveryNanos));
+    }
+
+    File file = new File(workDir, STATISTICS_FILE);
+    try {
+      Files.createDirectories(workDir.toPath());
+      try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+        write(writer, sorted, totalNanos);
+      }
+    } catch (IOException e) {
+      LOG.warn("Cannot write import statistics '{}': {}", file, e.getMessage());
+    }
+  }
+
+  private void write(Writer writer, List<ReportStatistics> sorted, long totalNanos) throws IOException {
+    writer.write("{\n  \"version\": 1,\n");
+    writer.write("  \"totalMicros\": " + micros(totalNanos) + ",\n");
+    writer.write("  \"discoveryMicros\": " + micros(discoveryNanos) + ",\n");
+    writer.write("  \"reports\": [");
+    String separator = "\n";
+    for (ReportStatistics report : sorted) {
+      writer.write(separator);
+      writer.write("    {\"path\": " + quote(report.report().getPath())
+        + ", \"format\": " + quote(report.format().name())
+        + ", \"parser\": " + quote(report.parser())
+        + ", \"parsed\": " + report.isParsed()
+        + ", \"bytes\": " + report.bytes()
+        + ", \"testCases\": " + report.testCases()
+        + ", \"testCasesPerSecond\": " + report.testCasesPerSecond()
+        + ", \"allocatedBytes\": " + report.allocatedBytes()
+        + ", \"detectionMicros\": " + micros(report.nanos(Phase.DETECTION))
+        + ", \"transformMicros\": " + micros(report.nanos(Phase.TRANSFORM))
+        + ", \"parseMicros\": " + micros(report.nanos(Phase.PARSE)) + "}");
+      separator = ",\n";
+    }
+    writer.write(sorted.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static long micros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+
+  static String quote(String value) {
+    StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < 0x20) {
+        quoted.append(String.format("\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+}
@@ -2,12 +2,25 @@ package org.trimble.plugins.unittest;
 
 import org.trimble.plugins.unittest.parsers.XunitReportParser;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.tools.ant.DirectoryScanner;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.Sensor;
 
 import org.sonar.api.batch.sensor.SensorContext;
@@ -17,9 +30,24 @@ import org.sonar.api.utils.ParsingUtils;
 import org.sonar.api.batch.sensor.SensorDescriptor;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.trimble.plugins.unittest.parsers.ConcurrentUnitTestResults;
 import org.trimble.plugins.unittest.parsers.NUnitTestResultsParser;
+import org.trimble.plugins.unittest.parsers.ReportCache;
+import org.trimble.plugins.unittest.parsers.ReportFormat;
 import org.trimble.plugins.unittest.parsers.ReportParser;
+import org.trimble.plugins.unittest.parsers.ReportStatistics;
+import org.trimble.plugins.unittest.parsers.ReportSummary;
+import org.trimble.plugins.unittest.parsers.ReportSummaryParser;
+import org.trimble.plugins.unittest.parsers.ReportStatistics.Phase;
 import org.trimble.plugins.unittest.parsers.UnitTestResults;
+import org.trimble.plugins.unittest.utils.DuplicateReports;
+import org.trimble.plugins.unittest.utils.ReportPrefetcher;
+import org.trimble.plugins.unittest.utils.ReportFinder;
+import org.trimble.plugins.unittest.utils.StringPool;
+import org.trimble.plugins.unittest.utils.TestCaseStore;
+import org.trimble.plugins.unittest.utils.TestFile;
+import org.trimble.plugins.unittest.utils.TestFileIndex;
+import org.trimble.plugins.unittest.utils.XmlFactories;
 
 /**
  * {@inheritDoc}
@@ -27,19 +55,49 @@ import org.trimble.plugins.unittest.parsers.UnitTestResults;
 public class UnitTestImportSensor implements Sensor {
   public static final Logger LOG = Loggers.get(UnitTestImportSensor.class);
   public static final String REPORT_PATH_KEY = "sonar.unittest.reportPath";
+  public static final String PARALLEL_WORKERS_KEY = "sonar.unittest.parallelWorkers";
+  public static final String REPORT_CACHE_KEY = "sonar.unittest.reportCache";
+  public static final String REPORT_CACHE_MAX_ENTRIES_KEY = "sonar.unittest.reportCache.maxEntries";
+  public static final String TEST_FILE_MEASURES_KEY = "sonar.unittest.testFileMeasures";
+  public static final String FAILURE_DETAIL_BUDGET_KEY = "sonar.unittest.failureDetailBudgetMB";
+  public static final String SKIP_DUPLICATE_REPORTS_KEY = "sonar.unittest.skipDuplicateReports";
+  public static final String SUMMARY_DIR_KEY = "sonar.unittest.summaryDir";
+  static final String REPORT_CACHE_FILE = "unittest-report-cache.tsv";
+  private static final int DEFAULT_REPORT_CACHE_MAX_ENTRIES = 50000;
   private static final double PERCENT_BASE = 100d;
-  private final List<ReportParser> parsers = new LinkedList<>();
+  private static final int MIN_STRING_POOL_SIZE = 1024;
+  private static final int DEFAULT_FAILURE_DETAIL_BUDGET_MB = 16;
+  private static final long MEGABYTE = 1024L * 1024L;
+  private final Map<ReportFormat, ReportParser> parsers = new EnumMap<>(ReportFormat.class);
+  private final XunitReportParser xunitParser;
   private final Settings settings;
+  private ReportCache reportCache;
+  private TestFileIndex testFileIndex;
+  private StringPool names;
+  private Map<InputFile, TestFile> testFiles;
+  private long failureDetailBudget;
+  private File workDir;
+  private File summaryDir;
+  private int unresolvedTestCases;
+  private ImportStatistics statistics;
   
   /**
    * {@inheritDoc}
    */
   public UnitTestImportSensor(Settings settings) {
     this.settings = settings;
-    ReportParser xunit = new XunitReportParser(settings);
-    ReportParser nunit = new NUnitTestResultsParser();
-    this.parsers.add(xunit);
-    this.parsers.add(nunit);
+    XmlFactories xmlFactories = new XmlFactories();
+    ReportParser nunit = new NUnitTestResultsParser(settings, xmlFactories);
+    this.xunitParser = new XunitReportParser(settings, xmlFactories);
+    this.parsers.put(ReportFormat.XUNIT, xunitParser);
+    this.parsers.put(ReportFormat.SUMMARY, new ReportSummaryParser());
+    if (settings.getString(XunitReportParser.XSLT_URL_KEY) != null) {
+      // every report but summaries goes through the stylesheet, NUnit ones included
+      this.parsers.put(ReportFormat.NUNIT, xunitParser);
+      this.parsers.put(ReportFormat.UNKNOWN, xunitParser);
+    } else {
+      this.parsers.put(ReportFormat.NUNIT, nunit);
+    }
   }
 
   protected String reportPathKey() {
@@ -62,22 +120,292 @@ public class UnitTestImportSensor implements Sensor {
     
     LOG.debug("Root module imports test metrics: Module Key = '{}'", context.module());    
     
+    statistics = new ImportStatistics();
+    long discoveryStart = System.nanoTime();
     List<File> reports = getReports(settings, context.fileSystem().baseDir(), REPORT_PATH_KEY);
+    boolean skipDuplicates = !settings.hasKey(SKIP_DUPLICATE_REPORTS_KEY) || settings.getBoolean(SKIP_DUPLICATE_REPORTS_KEY);
+    if (skipDuplicates && reports.size() > 1) {
+      reports = DuplicateReports.remove(reports);
+    }
+    statistics.discoveryTime(System.nanoTime() - discoveryStart);
     if (!reports.isEmpty()) {
-
-      UnitTestResults results = new UnitTestResults();
-      for(File report : reports) {
-        for (ReportParser parser : this.parsers) {
-          if (parser.parse(report, results)) {
-            break;
-          }
-        }          
+      if (settings.getBoolean(TEST_FILE_MEASURES_KEY)) {
+        createTestFileIndex(context.fileSystem());
+        // per report being parsed, past it failure details are spilled to the working directory
+        failureDetailBudget = (settings.hasKey(FAILURE_DETAIL_BUDGET_KEY)
+          ? settings.getLong(FAILURE_DETAIL_BUDGET_KEY) : DEFAULT_FAILURE_DETAIL_BUDGET_MB) * MEGABYTE;
+        workDir = context.fileSystem().workDir();
+      }
+      reportCache = createReportCache(context);
+      summaryDir = createSummaryDir(context.fileSystem().baseDir());
+      int workers = Math.min(settings.getInt(PARALLEL_WORKERS_KEY), reports.size());
+      ConcurrentUnitTestResults results = new ConcurrentUnitTestResults();
+      ExecutorService splitExecutor = createSplitExecutor(Math.max(1, workers));
+      try {
+        if (workers > 1) {
+          LOG.debug("Parsing '{}' reports using '{}' workers", reports.size(), workers);
+          parseReportsInParallel(reports, workers, results);
+        } else {
+          parseReportsSequentially(reports, results);
+        }
+      } finally {
+        if (splitExecutor != null) {
+          xunitParser.splitExecutor(null, 0);
+          splitExecutor.shutdownNow();
+        }
       }
 
-      saveMetrics(context, results);
+      if (reportCache != null) {
+        reportCache.save();
+        reportCache = null;
+      }
+      saveMetrics(context, results.snapshot());
+      if (testFiles != null) {
+        saveTestFileMetrics(context);
+        logStringPool();
+        testFileIndex = null;
+        testFiles = null;
+        names = null;
+      }
     } else {
       LOG.debug("No reports found, nothing to process");
     }
+    statistics.save(context.fileSystem().workDir());
+    statistics = null;
+  }
+
+  private void createTestFileIndex(FileSystem fileSystem) {
+    testFileIndex = new TestFileIndex(fileSystem.inputFiles(fileSystem.predicates().all()));
+    testFiles = new HashMap<>();
+    unresolvedTestCases = 0;
+    // class and file names are bounded by the files of the project
+    names = new StringPool(Math.max(MIN_STRING_POOL_SIZE, testFileIndex.size()));
+    LOG.debug("Indexed '{}' files to resolve test cases", testFileIndex.size());
+  }
+
+  /**
+   * Creates the executor the parts of large xunit reports are parsed on,
+   * shared by all the reports of the analysis. Each report worker may split
+   * its report over its share of the cores, splitting is off when that share
+   * is less than two threads.
+   */
+  private ExecutorService createSplitExecutor(int workers) {
+    int cores = Runtime.getRuntime().availableProcessors();
+    int threads = cores / workers;
+    if (!xunitParser.splitsReports() || threads < 2) {
+      return null;
+    }
+    LOG.debug("Splitting large xunit reports over '{}' threads per worker", threads);
+    ExecutorService executor = Executors.newFixedThreadPool(cores);
+    xunitParser.splitExecutor(executor, threads);
+    return executor;
+  }
+
+  private File createSummaryDir(File baseDir) {
+    String path = settings.getString(SUMMARY_DIR_KEY);
+    if (path == null || path.isEmpty()) {
+      return null;
+    }
+    File dir = new File(path);
+    if (!dir.isAbsolute()) {
+      dir = new File(baseDir, path);
+    }
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      LOG.warn("Cannot create the report summary directory '{}'", dir);
+      return null;
+    }
+    return dir;
+  }
+
+  private ReportCache createReportCache(SensorContext context) {
+    if (!settings.getBoolean(REPORT_CACHE_KEY)) {
+      return null;
+    }
+    if (testFiles != null) {
+      LOG.debug("Report cache not used: it does not hold per test file results");
+      return null;
+    }
+    int maxEntries = settings.hasKey(REPORT_CACHE_MAX_ENTRIES_KEY)
+      ? settings.getInt(REPORT_CACHE_MAX_ENTRIES_KEY) : DEFAULT_REPORT_CACHE_MAX_ENTRIES;
+    String xsltURL = settings.getString(XunitReportParser.XSLT_URL_KEY);
+    String configuration = "xslt=" + (xsltURL != null ? xsltURL : "");
+    if (settings.getBoolean(NUnitTestResultsParser.ROOT_COUNTERS_KEY)) {
+      configuration += " nunit=rootCounters";
+    }
+    if (settings.getBoolean(XunitReportParser.ROOT_SUMMARY_KEY)) {
+      configuration += " xunit=rootSummary";
+    }
+    ReportCache cache = new ReportCache(new File(context.fileSystem().workDir(), REPORT_CACHE_FILE),
+      configuration, maxEntries);
+    cache.load();
+    return cache;
+  }
+
+  /**
+   * Parses one report into thread confined results, which are merged into
+   * the shared ones once the report is done
+   */
+  private void parseReport(File report, ConcurrentUnitTestResults results) {
+    ReportStatistics reportStatistics = new ReportStatistics(report);
+    if (reportCache != null) {
+      reportStatistics.digestContent();
+    }
+    long allocatedBefore = ImportStatistics.allocatedBytes();
+    long lookupStart = System.nanoTime();
+    UnitTestResults reportResults = reportCache != null ? reportCache.lookup(report) : null;
+    Map<String, UnitTestResults> suites = summaryDir != null && testFiles != null
+      ? new LinkedHashMap<String, UnitTestResults>() : null;
+    boolean parsed = true;
+    if (reportResults != null) {
+      LOG.debug("Using cached results of unchanged report '{}'", report);
+      reportStatistics.addTime(Phase.PARSE, System.nanoTime() - lookupStart);
+      reportStatistics.parser("cache");
+      reportStatistics.parsed(true, reportResults.getTests());
+    } else {
+      reportResults = new UnitTestResults();
+      parsed = parseReportFile(report, reportResults, reportStatistics, suites);
+      if (parsed && reportCache != null) {
+        reportCache.store(report, reportResults, reportStatistics.contentDigest().value(report));
+      }
+    }
+    results.merge(reportResults);
+    if (parsed && summaryDir != null && reportStatistics.format() != ReportFormat.SUMMARY) {
+      writeSummary(report, reportResults, suites);
+    }
+    if (allocatedBefore >= 0) {
+      reportStatistics.allocatedBytes(ImportStatistics.allocatedBytes() - allocatedBefore);
+    }
+    statistics.add(reportStatistics);
+  }
+
+  /**
+   * @param suites receives the results of every suite when not null and the
+   * test cases of the report are stored
+   */
+  private boolean parseReportFile(File report, UnitTestResults results, ReportStatistics reportStatistics,
+    Map<String, UnitTestResults> suites) {
+    long detectionStart = System.nanoTime();
+    ReportFormat format = ReportFormat.detect(report);
+    reportStatistics.addTime(Phase.DETECTION, System.nanoTime() - detectionStart);
+    reportStatistics.format(format);
+    ReportParser parser = this.parsers.get(format);
+    if (parser == null) {
+      LOG.warn("Unrecognized report format, skipping '{}'", report);
+      return false;
+    }
+    boolean parsed;
+    long parseStart = System.nanoTime();
+    if (testFiles != null && parser == xunitParser) {
+      try (TestCaseStore testCases = new TestCaseStore(names, failureDetailBudget, workDir)) {
+        parsed = xunitParser.parse(report, results, testCases, reportStatistics);
+        reportStatistics.addTime(Phase.PARSE, System.nanoTime() - parseStart);
+        if (testCases.spilledDetailBytes() > 0) {
+          LOG.debug("Spilled '{}' bytes of failure details of report '{}' to disk", testCases.spilledDetailBytes(), report);
+        }
+        if (parsed) {
+          addTestCases(testCases);
+          if (suites != null) {
+            suites.putAll(ReportSummary.suites(testCases));
+          }
+        }
+      }
+    } else {
+      parsed = parser.parse(report, results, reportStatistics);
+      reportStatistics.addTime(Phase.PARSE, System.nanoTime() - parseStart);
+    }
+    reportStatistics.parsed(parsed, results.getTests());
+    if (!parsed) {
+      LOG.warn("Cannot parse '{}' as a {} report", report, format);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Writes the binary summary of a report, named after the report and a hash
+   * of its path so reports of the same name in different directories do not
+   * overwrite each other
+   */
+  private void writeSummary(File report, UnitTestResults results, Map<String, UnitTestResults> suites) {
+    File summary = new File(summaryDir, report.getName() + "-"
+      + Integer.toHexString(report.getAbsolutePath().hashCode()) + ReportSummary.EXTENSION);
+    try {
+      ReportSummary.write(summary, results, suites);
+    } catch (IOException e) {
+      LOG.warn("Cannot write the summary of report '{}': {}", report, e.getMessage());
+    }
+  }
+
+  private synchronized void addTestCases(TestCaseStore testCases) {
+    for (int row = 0; row < testCases.size(); row++) {
+      InputFile inputFile = testFileIndex.resolve(testCases, row);
+      if (inputFile == null) {
+        unresolvedTestCases++;
+        continue;
+      }
+      TestFile testFile = testFiles.get(inputFile);
+      if (testFile == null) {
+        testFile = new TestFile(inputFile);
+        testFiles.put(inputFile, testFile);
+      }
+      testFile.addTestCase(testCases, row);
+    }
+  }
+
+  private void parseReportsSequentially(List<File> reports, ConcurrentUnitTestResults results) {
+    try (ReportPrefetcher prefetcher = new ReportPrefetcher()) {
+      for (int i = 0; i < reports.size(); i++) {
+        if (i + 1 < reports.size()) {
+          prefetcher.prefetch(reports.get(i + 1));
+        }
+        parseReport(reports.get(i), results);
+      }
+    }
+  }
+
+  /**
+   * Parses the reports on a fixed pool of workers, all merging into the same
+   * lock free results. The sums do not depend on the merge order so the
+   * saved measures equal the sequential ones.
+   */
+  private void parseReportsInParallel(List<File> reports, int workers, final ConcurrentUnitTestResults results) {
+    final Queue<File> pending = new ConcurrentLinkedQueue<>(reports);
+    final ReportPrefetcher prefetcher = new ReportPrefetcher();
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    try {
+      List<Future<Void>> tasks = new ArrayList<>(workers);
+      for (int i = 0; i < workers; i++) {
+        tasks.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            File report;
+            while ((report = pending.poll()) != null) {
+              File next = pending.peek();
+              if (next != null) {
+                prefetcher.prefetch(next);
+              }
+              parseReport(report, results);
+            }
+            return null;
+          }
+        }));
+      }
+
+      for (Future<Void> task : tasks) {
+        task.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while parsing unit test reports", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Failed to parse unit test reports", e.getCause());
+    } finally {
+      executor.shutdownNow();
+      prefetcher.close();
+    }
   }
 
   public static List<File> getReports(Settings settings, final File moduleBaseDir,
@@ -108,16 +436,8 @@ public class UnitTestImportSensor implements Sensor {
 
       LOG.debug("Normalized report includes to '{}'", includes);
 
-      // Includes array cannot contain null elements
-      DirectoryScanner directoryScanner = new DirectoryScanner();
-      directoryScanner.setIncludes(includes.toArray(new String[includes.size()]));
-      directoryScanner.scan();
-
-      String [] includeFiles = directoryScanner.getIncludedFiles();
-      LOG.info("Scanner found '{}' report files", includeFiles.length);
-      for (String found : includeFiles) {        
-        reports.add(new File(found));
-      }
+      reports.addAll(ReportFinder.find(includes));
+      LOG.info("Scanner found '{}' report files", reports.size());
 
       if (reports.isEmpty()) {
         LOG.warn("Cannot find a report for '{}'", reportPathPropertyKey);
@@ -173,4 +493,45 @@ public class UnitTestImportSensor implements Sensor {
 
   }
 
+  private void logStringPool() {
+    LOG.debug("Name pool: '{}' distinct names, '{}' lookups, {}% hits, about '{}' KB saved",
+      names.size(), names.lookups(), String.format(Locale.ENGLISH, "%.1f", names.hitRate()), names.bytesSaved() / 1024);
+  }
+
+  private void saveTestFileMetrics(final SensorContext context) {
+    if (unresolvedTestCases > 0) {
+      LOG.debug("'{}' test cases could not be attached to a source file", unresolvedTestCases);
+    }
+
+    for (TestFile testFile : testFiles.values()) {
+      InputFile inputFile = testFile.getInputFile();
+      context.<Integer>newMeasure()
+        .forMetric(CoreMetrics.TESTS)
+        .on(inputFile)
+        .withValue(testFile.getTests())
+        .save();
+      context.<Integer>newMeasure()
+        .forMetric(CoreMetrics.TEST_ERRORS)
+        .on(inputFile)
+        .withValue(testFile.getErrors())
+        .save();
+      context.<Integer>newMeasure()
+        .forMetric(CoreMetrics.TEST_FAILURES)
+        .on(inputFile)
+        .withValue(testFile.getFailures())
+        .save();
+      context.<Integer>newMeasure()
+        .forMetric(CoreMetrics.SKIPPED_TESTS)
+        .on(inputFile)
+        .withValue(testFile.getSkipped())
+        .save();
+      context.<Long>newMeasure()
+        .forMetric(CoreMetrics.TEST_EXECUTION_TIME)
+        .on(inputFile)
+        .withValue(testFile.getTime())
+        .save();
+    }
+    LOG.info("Saved test measures on '{}' test files", testFiles.size());
+  }
+
 }
@@ -7,7 +7,9 @@ import org.sonar.api.Plugin;
 import org.sonar.api.Plugin.Context;
 
 import org.sonar.api.config.PropertyDefinition;
+import org.sonar.api.PropertyType;
 import org.sonar.api.resources.Qualifiers;
+import org.trimble.plugins.unittest.parsers.NUnitTestResultsParser;
 import org.trimble.plugins.unittest.parsers.XunitReportParser;
 
 /**
@@ -37,9 +39,114 @@ public final class UnitTestImporterPlugin implements Plugin {
       PropertyDefinition.builder(XunitReportParser.XSLT_URL_KEY)
       .name("XSLT transformer")
       .description("By default, the unit test execution reports are expected to be in the JUnitReport format."
-        + " To import a report in an other format, set this property to an URL to a XSLT stylesheet which is able to perform the according transformation.")
+        + " To import a report in an other format, set this property to an URL to a XSLT stylesheet which is able to perform the according transformation."
+        + " Remote stylesheets are kept in the Sonar user cache and revalidated with the server on every analysis.")
       .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
       .index(6)
+      .build(),
+      PropertyDefinition.builder(XunitReportParser.FAST_SCANNER_KEY)
+      .name("Fast xUnit scanner")
+      .description("Counts the test cases of xUnit reports with a memory mapped byte level scanner instead of the XML parser."
+        + " Reports the scanner cannot handle are parsed as usual. Not used when a XSLT transformer is set.")
+      .type(PropertyType.BOOLEAN)
+      .defaultValue("false")
+      .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
+      .index(10)
+      .build(),
+      PropertyDefinition.builder(XunitReportParser.ROOT_SUMMARY_KEY)
+      .name("xUnit root summary")
+      .description("Uses the tests, failures, errors, skipped and time totals written on the testsuites or top level"
+        + " testsuite element of xUnit reports instead of walking their test cases. Reports without complete totals"
+        + " are walked as usual. Not used when a XSLT transformer is set.")
+      .type(PropertyType.BOOLEAN)
+      .defaultValue("false")
+      .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
+      .index(13)
+      .build(),
+      PropertyDefinition.builder(XunitReportParser.SPLIT_THRESHOLD_KEY)
+      .name("xUnit report split threshold (MB)")
+      .description("xUnit reports of at least this size are split at their top level testsuite elements and the parts"
+        + " parsed on all available cores, divided between the parallel workers. 0 parses every report on a single"
+        + " thread, as do workers getting less than two cores. Not used when a XSLT"
+        + " transformer is set nor for per test file measures.")
+      .type(PropertyType.INTEGER)
+      .defaultValue("0")
+      .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
+      .index(14)
+      .build(),
+      PropertyDefinition.builder(UnitTestImportSensor.FAILURE_DETAIL_BUDGET_KEY)
+      .name("Failure detail heap budget (MB)")
+      .description("Heap the failure messages and stack traces of a report may use while computing per test file"
+        + " measures. Details past the budget are spilled to a temporary file in the working directory, every"
+        + " message or stack trace is truncated to 64K characters.")
+      .type(PropertyType.INTEGER)
+      .defaultValue("16")
+      .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
+      .index(15)
+      .build(),
+      PropertyDefinition.builder(UnitTestImportSensor.SKIP_DUPLICATE_REPORTS_KEY)
+      .name("Skip duplicate reports")
+      .description("Imports only once the reports found several times with the same content, for instance through"
+        + " overlapping report paths. Only reports of the same size are compared, by their SHA-1 digest.")
+      .type(PropertyType.BOOLEAN)
+      .defaultValue("true")
+      .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
+      .index(16)
+      .build(),
+      PropertyDefinition.builder(UnitTestImportSensor.SUMMARY_DIR_KEY)
+      .name("Report summary directory")
+      .description("Directory, absolute or relative to the project base directory, where a compact binary summary"
+        + " (.utsum) of every imported report is written. Summaries found by the report paths are imported like"
+        + " reports, so the directory should not be covered by them.")
+      .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
+      .index(17)
+      .build(),
+      PropertyDefinition.builder(UnitTestImportSensor.PARALLEL_WORKERS_KEY)
+      .name("Parallel report parsing workers")
+      .description("Number of threads used to parse the unit test execution reports."
+        + " Values lower or equal to 1 parse the reports sequentially.")
+      .type(PropertyType.INTEGER)
+      .defaultValue("1")
+      .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
+      .index(7)
+      .build(),
+      PropertyDefinition.builder(UnitTestImportSensor.REPORT_CACHE_KEY)
+      .name("Incremental report import")
+      .description("Keeps the results of every report in the scanner working directory and reuses them"
+        + " in later analyses as long as the report content is unchanged. A report whose path, size and"
+        + " modification time are unchanged is reused without being read, a report rewritten with the same"
+        + " size and modification time is not detected.")
+      .type(PropertyType.BOOLEAN)
+      .defaultValue("false")
+      .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
+      .index(8)
+      .build(),
+      PropertyDefinition.builder(UnitTestImportSensor.REPORT_CACHE_MAX_ENTRIES_KEY)
+      .name("Incremental report import cache size")
+      .description("Maximum number of reports kept in the incremental import cache.")
+      .type(PropertyType.INTEGER)
+      .defaultValue("50000")
+      .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
+      .index(9)
+      .build(),
+      PropertyDefinition.builder(UnitTestImportSensor.TEST_FILE_MEASURES_KEY)
+      .name("Test file measures")
+      .description("Also saves the test measures on the source files implementing the test cases,"
+        + " resolved from the filename or classname attributes of xUnit reports."
+        + " The incremental report import is not used when enabled.")
+      .type(PropertyType.BOOLEAN)
+      .defaultValue("false")
+      .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
+      .index(11)
+      .build(),
+      PropertyDefinition.builder(NUnitTestResultsParser.ROOT_COUNTERS_KEY)
+      .name("NUnit root counters only")
+      .description("Reads the totals of the root element of NUnit reports instead of every test case."
+        + " Faster on large reports, but no test execution time is imported from them.")
+      .type(PropertyType.BOOLEAN)
+      .defaultValue("false")
+      .onQualifiers(Qualifiers.PROJECT, Qualifiers.MODULE)
+      .index(12)
       .build()
     ));
   }
@@ -0,0 +1,44 @@
+package org.trimble.plugins.unittest.parsers;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Results shared by several parsing threads. Every counter is a LongAdder so
+ * concurrent merges neither lock nor contend on a single memory location.
+ *
+ * Parsers keep accumulating every test case into a plain, thread confined
+ * {@link UnitTestResults}, which is merged here once per report.
+ */
+public class ConcurrentUnitTestResults {
+  private final LongAdder tests = new LongAdder();
+  private final LongAdder passed = new LongAdder();
+  private final LongAdder skipped = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder durationMillis = new LongAdder();
+
+  /**
+   * Adds the counters of the given results, safe to call from any thread
+   *
+   * @param other the results of one report or one worker
+   */
+  public void merge(UnitTestResults other) {
+    tests.add(other.tests);
+    passed.add(other.passed);
+    skipped.add(other.skipped);
+    failures.add(other.failures);
+    errors.add(other.errors);
+    durationMillis.add(other.durationMillis);
+  }
+
+  /**
+   * Returns the sum of the results merged so far. Taken while merges are
+   * still running, the counters are not guaranteed to be mutually consistent.
+   */
+  public UnitTestResults snapshot() {
+    UnitTestResults snapshot = new UnitTestResults();
+    snapshot.add((int) tests.sum(), (int) passed.sum(), (int) skipped.sum(),
+      (int) failures.sum(), (int) errors.sum(), durationMillis.sum());
+    return snapshot;
+  }
+}
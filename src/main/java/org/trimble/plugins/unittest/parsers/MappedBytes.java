@@ -0,0 +1,90 @@
+package org.trimble.plugins.unittest.parsers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read only mapping of a whole file, split in chunks as a single mapping
+ * cannot exceed 2GB
+ */
+final class MappedBytes {
+  private static final int CHUNK_BITS = 30;
+  private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+  private final MappedByteBuffer[] chunks;
+  private final long size;
+
+  private MappedBytes(MappedByteBuffer[] chunks, long size) {
+    this.chunks = chunks;
+    this.size = size;
+  }
+
+  static MappedBytes map(FileChannel channel) throws IOException {
+    long size = channel.size();
+    int count = (int) ((size + CHUNK_MASK) >>> CHUNK_BITS);
+    MappedByteBuffer[] chunks = new MappedByteBuffer[count];
+    for (int i = 0; i < count; i++) {
+      long offset = (long) i << CHUNK_BITS;
+      chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size - offset, 1L << CHUNK_BITS));
+    }
+    return new MappedBytes(chunks, size);
+  }
+
+  long size() {
+    return size;
+  }
+
+  byte get(long index) {
+    return chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & CHUNK_MASK));
+  }
+
+  /**
+   * Returns a stream over the bytes from start inclusive to end exclusive,
+   * streams of a same mapping can be read concurrently
+   */
+  InputStream stream(long start, long end) {
+    return new RangeInputStream(start, end);
+  }
+
+  private final class RangeInputStream extends InputStream {
+    private long position;
+    private final long end;
+
+    RangeInputStream(long start, long end) {
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public int read() {
+      return position < end ? get(position++) & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (position >= end) {
+        return -1;
+      }
+      // called through the Java 8 types, the covariant overrides of newer JDKs do not exist there
+      ByteBuffer chunk = ((ByteBuffer) chunks[(int) (position >>> CHUNK_BITS)]).duplicate();
+      int chunkOffset = (int) (position & CHUNK_MASK);
+      int count = (int) Math.min(Math.min(length, end - position), (long) chunk.limit() - chunkOffset);
+      ((Buffer) chunk).position(chunkOffset);
+      chunk.get(buffer, offset, count);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(end - position, Integer.MAX_VALUE);
+    }
+  }
+}
@@ -7,19 +7,59 @@ package org.trimble.plugins.unittest.parsers;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.UnsupportedEncodingException;
-import java.util.logging.Level;
+import java.text.ParseException;
+import java.util.Locale;
 import javax.xml.stream.XMLStreamException;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.ParsingUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.trimble.plugins.unittest.utils.ContentDigest;
+import org.trimble.plugins.unittest.utils.XmlFactories;
 import org.trimble.plugins.unittest.utils.XmlParserHelper;
 
+/**
+ * Parses NUnit 2 test-results and NUnit 3 test-run documents. By default
+ * every test-case element is streamed through once to count its result and
+ * add up its time (NUnit 2) or duration (NUnit 3), holding a single element
+ * in memory whatever the size of the report. In root counters mode only the
+ * totals of the root element are read, which is cheaper but leaves the
+ * duration unknown.
+ */
 public class NUnitTestResultsParser implements ReportParser {
   public static final Logger LOG = Loggers.get(NUnitTestResultsParser.class);
+  public static final String ROOT_COUNTERS_KEY = "sonar.unittests.nunit.rootCounters";
+
+  private final XmlFactories xmlFactories;
+  private final boolean rootCounters;
+
+  public NUnitTestResultsParser() {
+    this(new XmlFactories());
+  }
+
+  public NUnitTestResultsParser(XmlFactories xmlFactories) {
+    this(xmlFactories, false);
+  }
+
+  public NUnitTestResultsParser(Settings settings, XmlFactories xmlFactories) {
+    this(xmlFactories, settings.getBoolean(ROOT_COUNTERS_KEY));
+  }
+
+  NUnitTestResultsParser(XmlFactories xmlFactories, boolean rootCounters) {
+    this.xmlFactories = xmlFactories;
+    this.rootCounters = rootCounters;
+  }
 
   @Override
   public Boolean parse(File file, UnitTestResults unitTestResults) {
+    return parse(file, unitTestResults, new ReportStatistics(file));
+  }
+
+  @Override
+  public Boolean parse(File file, UnitTestResults unitTestResults, ReportStatistics statistics) {
     LOG.info("Parsing the NUnit Test Results file " + file.getAbsolutePath());
-    return new Parser(file, unitTestResults).parse();
+    statistics.parser(rootCounters ? "nunit-root-counters" : "nunit-stream");
+    return new Parser(file, unitTestResults, xmlFactories, rootCounters, statistics.contentDigest()).parse();
   }
 
   private static class Parser {
@@ -27,19 +67,30 @@ public class NUnitTestResultsParser implements ReportParser {
     private final File file;
     private XmlParserHelper xmlParserHelper;
     private final UnitTestResults unitTestResults;
+    private final XmlFactories xmlFactories;
+    private final boolean rootCounters;
+    private final ContentDigest digest;
 
-    public Parser(File file, UnitTestResults unitTestResults) {
+    public Parser(File file, UnitTestResults unitTestResults, XmlFactories xmlFactories, boolean rootCounters,
+      ContentDigest digest) {
       this.file = file;
       this.unitTestResults = unitTestResults;
+      this.xmlFactories = xmlFactories;
+      this.rootCounters = rootCounters;
+      this.digest = digest;
     }
 
     public Boolean parse() {
 
       try {
-          xmlParserHelper = new XmlParserHelper(file);
+          xmlParserHelper = new XmlParserHelper(file, xmlFactories, digest);
 
         xmlParserHelper.nextTag();
-        handleTestResultsTags();
+        if (rootCounters) {
+          handleTestResultsTags();
+        } else {
+          handleTestCaseTags();
+        }
       } catch (FileNotFoundException | UnsupportedEncodingException | XMLStreamException ex) {
         if (xmlParserHelper != null) {
           xmlParserHelper.close();
@@ -110,5 +161,67 @@ public class NUnitTestResultsParser implements ReportParser {
 
       unitTestResults.add(tests, passed, skipped, failures, errors, 0L);
     }
+
+    private void handleTestCaseTags() throws XMLStreamException {
+      String tag;
+      while ((tag = xmlParserHelper.nextTag()) != null) {
+        if ("test-case".equals(tag)) {
+          handleTestCaseTag();
+        }
+      }
+    }
+
+    /**
+     * NUnit 2 results are Success, Failure, Error, Ignored, NotRunnable,
+     * Skipped, Inconclusive or Cancelled, older reports only have the
+     * executed and success flags. NUnit 3 results are Passed, Failed,
+     * Skipped, Inconclusive or Warning, errors being failures labeled Error.
+     * As in root counters mode, inconclusive test cases are skipped but not
+     * counted as tests.
+     */
+    private void handleTestCaseTag() throws XMLStreamException {
+      String result = xmlParserHelper.getAttribute("result");
+      String duration = xmlParserHelper.getAttribute("duration");
+      long millis = parseDuration(duration != null ? duration : xmlParserHelper.getAttribute("time"));
+
+      if (result == null) {
+        if ("False".equalsIgnoreCase(xmlParserHelper.getAttribute("executed"))) {
+          unitTestResults.add(1, 0, 1, 0, 0, millis);
+        } else if ("False".equalsIgnoreCase(xmlParserHelper.getAttribute("success"))) {
+          unitTestResults.add(1, 0, 0, 1, 0, millis);
+        } else {
+          unitTestResults.add(1, 1, 0, 0, 0, millis);
+        }
+      } else if ("Success".equals(result) || "Passed".equals(result) || "Warning".equals(result)) {
+        unitTestResults.add(1, 1, 0, 0, 0, millis);
+      } else if ("Error".equals(result)
+        || "Failed".equals(result) && "Error".equals(xmlParserHelper.getAttribute("label"))) {
+        unitTestResults.add(1, 0, 0, 0, 1, millis);
+      } else if ("Failure".equals(result) || "Failed".equals(result)) {
+        unitTestResults.add(1, 0, 0, 1, 0, millis);
+      } else if ("Inconclusive".equals(result)) {
+        unitTestResults.add(0, 0, 1, 0, 0, millis);
+      } else {
+        unitTestResults.add(1, 0, 1, 0, 0, millis);
+      }
+    }
+
+    /**
+     * Converts a time in seconds to whole milliseconds, truncated as for the
+     * xUnit reports. NUnit 2 writes the time
+     * with the decimal separator of the culture it ran in, e.g. "0,009".
+     */
+    private long parseDuration(String seconds) throws XMLStreamException {
+      if (seconds == null || seconds.isEmpty()) {
+        return 0L;
+      }
+      String value = seconds.indexOf('.') < 0 ? seconds.replace(',', '.') : seconds;
+      try {
+        double parsed = ParsingUtils.parseNumber(value, Locale.ENGLISH);
+        return Double.isNaN(parsed) ? 0L : UnitTestResults.millis(ParsingUtils.scaleValue(parsed * 1000, 3));
+      } catch (ParseException e) {
+        throw new XMLStreamException("Expected a duration instead of \"" + seconds + "\"", e);
+      }
+    }
   }
 }
\ No newline at end of file
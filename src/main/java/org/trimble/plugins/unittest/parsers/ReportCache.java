@@ -0,0 +1,249 @@
+package org.trimble.plugins.unittest.parsers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.trimble.plugins.unittest.utils.ContentDigest;
+import org.trimble.plugins.unittest.utils.FileDigest;
+
+/**
+ * Persistent cache of the results contributed by each report, kept between
+ * analyses in the scanner working directory. A report is served from the
+ * cache when its path, size and modification time are unchanged, without
+ * reading it: a report rewritten with the same size and modification time
+ * is not detected. When only its modification time changed, it is served
+ * from the cache if its content digest is the same.
+ *
+ * The digest of a parsed report is taken from the bytes read by the parser
+ * when it streamed the whole file, see {@link ContentDigest}, the report is
+ * read again for its digest otherwise.
+ *
+ * The cache holds at most a fixed number of entries, the least recently used
+ * ones and the ones whose report is gone are evicted on save.
+ */
+public class ReportCache {
+  public static final Logger LOG = Loggers.get(ReportCache.class);
+  static final String HEADER = "# unittest report cache v3 ";
+  private static final String SEPARATOR = "\t";
+  private static final int FIELDS = 10;
+
+  private final File cacheFile;
+  private final String configuration;
+  private final int maxEntries;
+  private final Map<String, Entry> entries;
+  private int hits = 0;
+  private int misses = 0;
+
+  /**
+   * @param cacheFile the file the cache is loaded from and saved to
+   * @param configuration a description of the settings influencing parse
+   * results (e.g. the xslt), the cache is discarded when it changes
+   * @param maxEntries the maximum number of reports kept in the cache
+   */
+  public ReportCache(File cacheFile, String configuration, int maxEntries) {
+    this.cacheFile = cacheFile;
+    this.configuration = configuration;
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Loads the cache file, a missing, unreadable or outdated cache is ignored
+   */
+  public synchronized void load() {
+    entries.clear();
+    if (!cacheFile.isFile()) {
+      return;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+      String header = reader.readLine();
+      if (!(HEADER + configuration).equals(header)) {
+        LOG.debug("Discarding report cache '{}' created with other settings", cacheFile);
+        return;
+      }
+      String line;
+      while ((line = reader.readLine()) != null) {
+        Entry entry = Entry.parse(line);
+        if (entry != null) {
+          entries.put(entry.path, entry);
+        }
+      }
+      LOG.debug("Loaded '{}' entries from report cache '{}'", entries.size(), cacheFile);
+    } catch (IOException e) {
+      LOG.warn("Cannot read report cache '{}': {}", cacheFile, e.getMessage());
+      entries.clear();
+    }
+  }
+
+  /**
+   * Returns the cached results of the given report, null if the report is
+   * not in the cache or has been modified
+   */
+  public UnitTestResults lookup(File report) {
+    String path = report.getAbsolutePath();
+    long size = report.length();
+    long modified = report.lastModified();
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(path);
+    }
+    if (entry == null || entry.size != size) {
+      return miss();
+    }
+    if (entry.modified != modified) {
+      try {
+        if (!entry.digest.equals(FileDigest.sha1(report))) {
+          return miss();
+        }
+      } catch (IOException e) {
+        return miss();
+      }
+      synchronized (this) {
+        entries.put(path, entry.touch(modified));
+      }
+    }
+    synchronized (this) {
+      hits++;
+    }
+    return entry.results();
+  }
+
+  /**
+   * Records the results contributed by the given report
+   */
+  public void store(File report, UnitTestResults results) {
+    store(report, results, null);
+  }
+
+  /**
+   * Records the results contributed by the given report
+   *
+   * @param digest the content digest of the report computed while parsing
+   * it, null to read the report for it
+   */
+  public void store(File report, UnitTestResults results, String digest) {
+    try {
+      Entry entry = new Entry(report.getAbsolutePath(), report.length(), report.lastModified(),
+        digest != null ? digest : FileDigest.sha1(report), results);
+      synchronized (this) {
+        entries.put(entry.path, entry);
+      }
+    } catch (IOException e) {
+      LOG.debug("Cannot cache results of '{}': {}", report, e.getMessage());
+    }
+  }
+
+  /**
+   * Evicts entries of deleted reports and the least recently used entries
+   * above the size cap, then writes the cache file
+   */
+  public synchronized void save() {
+    for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+      if (!new File(it.next().path).isFile()) {
+        it.remove();
+      }
+    }
+    int overflow = entries.size() - maxEntries;
+    for (Iterator<Entry> it = entries.values().iterator(); overflow > 0 && it.hasNext(); overflow--) {
+      it.next();
+      it.remove();
+    }
+
+    try {
+      Files.createDirectories(cacheFile.getAbsoluteFile().getParentFile().toPath());
+      File partial = new File(cacheFile.getPath() + ".part");
+      try (BufferedWriter writer = Files.newBufferedWriter(partial.toPath(), StandardCharsets.UTF_8)) {
+        writer.write(HEADER + configuration);
+        writer.newLine();
+        for (Entry entry : entries.values()) {
+          writer.write(entry.format());
+          writer.newLine();
+        }
+      }
+      Files.move(partial.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      LOG.debug("Report cache: '{}' hits, '{}' misses, '{}' entries saved", hits, misses, entries.size());
+    } catch (IOException e) {
+      LOG.warn("Cannot write report cache '{}': {}", cacheFile, e.getMessage());
+    }
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  private synchronized UnitTestResults miss() {
+    misses++;
+    return null;
+  }
+
+  private static final class Entry {
+    private final String path;
+    private final long size;
+    private final long modified;
+    private final String digest;
+    private final int tests;
+    private final int passed;
+    private final int skipped;
+    private final int failures;
+    private final int errors;
+    private final long durationMillis;
+
+    Entry(String path, long size, long modified, String digest, UnitTestResults results) {
+      this(path, size, modified, digest, results.tests, results.passed, results.skipped,
+        results.failures, results.errors, results.durationMillis);
+    }
+
+    Entry(String path, long size, long modified, String digest,
+      int tests, int passed, int skipped, int failures, int errors, long durationMillis) {
+      this.path = path;
+      this.size = size;
+      this.modified = modified;
+      this.digest = digest;
+      this.tests = tests;
+      this.passed = passed;
+      this.skipped = skipped;
+      this.failures = failures;
+      this.errors = errors;
+      this.durationMillis = durationMillis;
+    }
+
+    Entry touch(long newModified) {
+      return new Entry(path, size, newModified, digest, tests, passed, skipped, failures, errors, durationMillis);
+    }
+
+    UnitTestResults results() {
+      UnitTestResults results = new UnitTestResults();
+      results.add(tests, passed, skipped, failures, errors, durationMillis);
+      return results;
+    }
+
+    String format() {
+      return path + SEPARATOR + size + SEPARATOR + modified + SEPARATOR + digest
+        + SEPARATOR + tests + SEPARATOR + passed + SEPARATOR + skipped
+        + SEPARATOR + failures + SEPARATOR + errors + SEPARATOR + durationMillis;
+    }
+
+    static Entry parse(String line) {
+      String[] fields = line.split(SEPARATOR);
+      if (fields.length != FIELDS) {
+        return null;
+      }
+      try {
+        return new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3],
+          Integer.parseInt(fields[4]), Integer.parseInt(fields[5]), Integer.parseInt(fields[6]),
+          Integer.parseInt(fields[7]), Integer.parseInt(fields[8]), Long.parseLong(fields[9]));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+  }
+}
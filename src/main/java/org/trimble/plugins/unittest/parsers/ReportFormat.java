@@ -0,0 +1,155 @@
+package org.trimble.plugins.unittest.parsers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.trimble.plugins.unittest.utils.ReportStreams;
+
+/**
+ * Report formats known by the importer. The format of a report is detected
+ * from the first few KB of the file (byte order mark, root element name and
+ * namespace) so each report is handed straight to the parser able to read it.
+ * Compressed reports are detected from their uncompressed content.
+ */
+public enum ReportFormat {
+  XUNIT,
+  NUNIT,
+  /** binary summary written by the importer, see {@link ReportSummary} */
+  SUMMARY,
+  UNKNOWN;
+
+  public static final Logger LOG = Loggers.get(ReportFormat.class);
+  static final int HEAD_SIZE = 8 * 1024;
+
+  /**
+   * Detects the format of the given report by looking at its root element only
+   *
+   * @param report the report file
+   * @return the detected format, UNKNOWN if the root element is not recognized
+   * or could not be found in the head of the file
+   */
+  public static ReportFormat detect(File report) {
+    byte[] head = new byte[HEAD_SIZE];
+    int length;
+    InputStream input = null;
+    try {
+      input = ReportStreams.openHead(report);
+      length = IOUtils.read(input, head);
+    } catch (IOException e) {
+      LOG.debug("Cannot read report '{}': {}", report, e.getMessage());
+      return UNKNOWN;
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+
+    return detect(head, length);
+  }
+
+  static ReportFormat detect(byte[] head, int length) {
+    if (ReportSummary.hasMagic(head, length)) {
+      return SUMMARY;
+    }
+    String text = decode(head, length);
+    int start = skipProlog(text);
+    if (start < 0) {
+      return UNKNOWN;
+    }
+
+    int end = start;
+    while (end < text.length() && !isNameEnd(text.charAt(end))) {
+      end++;
+    }
+    if (end == text.length()) {
+      return UNKNOWN;
+    }
+    String rootName = text.substring(start, end);
+    String namespace = null;
+    int colon = rootName.indexOf(':');
+    if (colon >= 0) {
+      rootName = rootName.substring(colon + 1);
+    }
+    int xmlns = text.indexOf("xmlns", end);
+    int tagEnd = text.indexOf('>', end);
+    if (xmlns >= 0 && (tagEnd < 0 || xmlns < tagEnd)) {
+      namespace = text.substring(xmlns, tagEnd < 0 ? text.length() : tagEnd);
+    }
+
+    return fromRootElement(rootName, namespace);
+  }
+
+  private static ReportFormat fromRootElement(String rootName, String namespace) {
+    if ("testsuites".equals(rootName) || "testsuite".equals(rootName)) {
+      return XUNIT;
+    }
+    if ("test-results".equals(rootName) || "test-run".equals(rootName)
+      || namespace != null && namespace.toLowerCase().contains("nunit")) {
+      return NUNIT;
+    }
+    return UNKNOWN;
+  }
+
+  private static String decode(byte[] head, int length) {
+    int offset = 0;
+    Charset charset = StandardCharsets.ISO_8859_1;
+    if (length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+      offset = 3;
+    } else if (length >= 2 && (head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF) {
+      offset = 2;
+      charset = StandardCharsets.UTF_16BE;
+    } else if (length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE) {
+      offset = 2;
+      charset = StandardCharsets.UTF_16LE;
+    } else if (length >= 2 && head[0] == 0 && head[1] == '<') {
+      charset = StandardCharsets.UTF_16BE;
+    } else if (length >= 2 && head[0] == '<' && head[1] == 0) {
+      charset = StandardCharsets.UTF_16LE;
+    }
+
+    return new String(head, offset, Math.max(length - offset, 0), charset);
+  }
+
+  /**
+   * Skips the XML declaration, processing instructions, comments and doctype
+   *
+   * @return the index of the root element name, -1 if it is not in the text
+   */
+  private static int skipProlog(String text) {
+    int pos = 0;
+    while (pos < text.length()) {
+      char c = text.charAt(pos);
+      if (Character.isWhitespace(c)) {
+        pos++;
+      } else if (text.startsWith("<?", pos)) {
+        pos = skipPast(text, pos, "?>");
+      } else if (text.startsWith("<!--", pos)) {
+        pos = skipPast(text, pos, "-->");
+      } else if (text.startsWith("<!", pos)) {
+        int subset = text.indexOf('[', pos);
+        int close = text.indexOf('>', pos);
+        pos = subset >= 0 && subset < close ? skipPast(text, subset, "]>") : skipPast(text, pos, ">");
+      } else if (c == '<') {
+        return pos + 1 < text.length() ? pos + 1 : -1;
+      } else {
+        return -1;
+      }
+      if (pos < 0) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  private static int skipPast(String text, int from, String terminator) {
+    int index = text.indexOf(terminator, from);
+    return index < 0 ? -1 : index + terminator.length();
+  }
+
+  private static boolean isNameEnd(char c) {
+    return Character.isWhitespace(c) || c == '>' || c == '/';
+  }
+}
@@ -13,4 +13,10 @@ import java.io.File;
  */
 public interface ReportParser {
   Boolean parse(File report, UnitTestResults unitTestResults);
+
+  /**
+   * Same as {@link #parse(File, UnitTestResults)}, recording into the
+   * statistics the parser, or fast path, used for the report
+   */
+  Boolean parse(File report, UnitTestResults unitTestResults, ReportStatistics statistics);
 }
@@ -0,0 +1,121 @@
+package org.trimble.plugins.unittest.parsers;
+
+import java.io.File;
+import org.trimble.plugins.unittest.utils.ContentDigest;
+
+/**
+ * Cost of importing one report: the time spent in each phase, the size of
+ * the report, the number of test cases found, the bytes allocated by the
+ * importing thread and the parser which produced the results. Filled by the
+ * sensor and the parsers on the thread importing the report.
+ */
+public class ReportStatistics {
+
+  /**
+   * Import phases, the transformation runs alongside the parse and overlaps
+   * its time
+   */
+  public enum Phase {
+    DETECTION, TRANSFORM, PARSE
+  }
+
+  private final File report;
+  private final long bytes;
+  private final long[] nanos = new long[Phase.values().length];
+  private ReportFormat format = ReportFormat.UNKNOWN;
+  private String parser = "none";
+  private boolean parsed = false;
+  private int testCases = 0;
+  private long allocatedBytes = -1;
+  private ContentDigest contentDigest;
+
+  public ReportStatistics(File report) {
+    this.report = report;
+    this.bytes = report.length();
+  }
+
+  public void addTime(Phase phase, long elapsedNanos) {
+    nanos[phase.ordinal()] += elapsedNanos;
+  }
+
+  public void format(ReportFormat format) {
+    this.format = format;
+  }
+
+  /**
+   * Records the parser, or the fast path of a parser, which produced the
+   * results of the report
+   */
+  public void parser(String parser) {
+    this.parser = parser;
+  }
+
+  public void parsed(boolean parsed, int testCases) {
+    this.parsed = parsed;
+    this.testCases = testCases;
+  }
+
+  public void allocatedBytes(long allocatedBytes) {
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  /**
+   * Asks the parsers to digest the report as they read it, see
+   * {@link ContentDigest}
+   */
+  public void digestContent() {
+    contentDigest = new ContentDigest();
+  }
+
+  /**
+   * Returns the digest the parsers update while reading the report, null
+   * when the report is not to be digested
+   */
+  public ContentDigest contentDigest() {
+    return contentDigest;
+  }
+
+  public File report() {
+    return report;
+  }
+
+  public long bytes() {
+    return bytes;
+  }
+
+  public long nanos(Phase phase) {
+    return nanos[phase.ordinal()];
+  }
+
+  public ReportFormat format() {
+    return format;
+  }
+
+  public String parser() {
+    return parser;
+  }
+
+  public boolean isParsed() {
+    return parsed;
+  }
+
+  public int testCases() {
+    return testCases;
+  }
+
+  /**
+   * Returns the number of test cases parsed per second, 0 when unknown
+   */
+  public long testCasesPerSecond() {
+    long parseNanos = nanos(Phase.PARSE);
+    return parseNanos <= 0 ? 0 : (long) (testCases * 1e9 / parseNanos);
+  }
+
+  /**
+   * Returns the bytes allocated by the importing thread, -1 when the JVM
+   * does not measure them
+   */
+  public long allocatedBytes() {
+    return allocatedBytes;
+  }
+}
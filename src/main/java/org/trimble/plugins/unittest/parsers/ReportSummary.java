@@ -0,0 +1,215 @@
+package org.trimble.plugins.unittest.parsers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.io.IOUtils;
+import org.trimble.plugins.unittest.utils.ReportStreams;
+import org.trimble.plugins.unittest.utils.TestCaseStore;
+
+/**
+ * Compact binary summary of the results of one report, written for the
+ * other tools of a pipeline and read back as a report of its own. Reading a
+ * summary costs a memory mapping and a few reads instead of a XML parse.
+ *
+ * Layout, big endian:
+ * <pre>
+ * 0   "UTSM" magic
+ * 4   u16 version, 1
+ * 6   u16 flags, bit 0 set when suite rollups follow the totals
+ * 8   i32 tests, passed, skipped, failures, errors
+ * 28  i64 duration in milliseconds
+ * 36  i32 number of suites, then for every suite: u16 length and UTF-8
+ *     bytes of its name, the five i32 counters and the i64 duration
+ * </pre>
+ */
+public final class ReportSummary {
+
+  public static final String EXTENSION = ".utsum";
+  static final int VERSION = 1;
+
+  private static final byte[] MAGIC = {'U', 'T', 'S', 'M'};
+  private static final int FLAG_SUITES = 1;
+  private static final int TOTALS_SIZE = 5 * 4 + 8;
+  private static final int HEADER_SIZE = MAGIC.length + 2 + 2 + TOTALS_SIZE;
+  private static final int MAX_NAME_BYTES = 0xFFFF;
+
+  private final UnitTestResults totals;
+  private final Map<String, UnitTestResults> suites;
+
+  private ReportSummary(UnitTestResults totals, Map<String, UnitTestResults> suites) {
+    this.totals = totals;
+    this.suites = suites;
+  }
+
+  public UnitTestResults totals() {
+    return totals;
+  }
+
+  /**
+   * Returns the results of every suite, empty when the summary holds no
+   * rollups
+   */
+  public Map<String, UnitTestResults> suites() {
+    return suites;
+  }
+
+  static boolean hasMagic(byte[] head, int length) {
+    if (length < MAGIC.length) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (head[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes a summary
+   *
+   * @param suites the results of every suite, null to write the totals only
+   */
+  public static void write(File summary, UnitTestResults totals, Map<String, UnitTestResults> suites)
+    throws IOException {
+    int size = HEADER_SIZE;
+    byte[][] names = null;
+    if (suites != null) {
+      names = new byte[suites.size()][];
+      size += 4;
+      int i = 0;
+      for (String name : suites.keySet()) {
+        names[i] = nameBytes(name);
+        size += 2 + names[i].length + TOTALS_SIZE;
+        i++;
+      }
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.put(MAGIC).putShort((short) VERSION).putShort((short) (suites != null ? FLAG_SUITES : 0));
+    putTotals(buffer, totals);
+    if (suites != null) {
+      buffer.putInt(suites.size());
+      int i = 0;
+      for (UnitTestResults suite : suites.values()) {
+        buffer.putShort((short) names[i].length).put(names[i]);
+        putTotals(buffer, suite);
+        i++;
+      }
+    }
+    Files.write(summary.toPath(), buffer.array());
+  }
+
+  /**
+   * Encodes a suite name, truncated to the longest run of whole characters
+   * that fits the u16 length
+   */
+  static byte[] nameBytes(String name) {
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length <= MAX_NAME_BYTES) {
+      return bytes;
+    }
+    int end = MAX_NAME_BYTES;
+    // backs off to the first byte of the character the limit falls into
+    while (end > 0 && (bytes[end] & 0xC0) == 0x80) {
+      end--;
+    }
+    return Arrays.copyOf(bytes, end);
+  }
+
+  private static void putTotals(ByteBuffer buffer, UnitTestResults results) {
+    buffer.putInt(results.tests).putInt(results.passed).putInt(results.skipped).putInt(results.failures)
+      .putInt(results.errors).putLong(results.durationMillis);
+  }
+
+  /**
+   * Reads a summary, memory mapped unless it is compressed
+   *
+   * @throws IOException if the file is not a summary of a supported version
+   */
+  public static ReportSummary read(File summary) throws IOException {
+    ByteBuffer buffer;
+    if (ReportStreams.compression(summary) == ReportStreams.Compression.NONE) {
+      try (RandomAccessFile file = new RandomAccessFile(summary, "r")) {
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+      }
+    } else {
+      // summaries are a few KB, nothing to read ahead
+      try (InputStream input = ReportStreams.openHead(summary)) {
+        buffer = ByteBuffer.wrap(IOUtils.toByteArray(input));
+      }
+    }
+    try {
+      return read(buffer);
+    } catch (RuntimeException e) {
+      throw new IOException("Truncated summary '" + summary + "'", e);
+    }
+  }
+
+  private static ReportSummary read(ByteBuffer buffer) throws IOException {
+    byte[] magic = new byte[MAGIC.length];
+    if (buffer.remaining() < HEADER_SIZE) {
+      throw new IOException("Not a unit test summary");
+    }
+    buffer.get(magic);
+    if (!hasMagic(magic, magic.length)) {
+      throw new IOException("Not a unit test summary");
+    }
+    int version = buffer.getShort() & 0xFFFF;
+    if (version != VERSION) {
+      throw new IOException("Unsupported summary version " + version);
+    }
+    int flags = buffer.getShort() & 0xFFFF;
+    UnitTestResults totals = getTotals(buffer);
+    if ((flags & FLAG_SUITES) == 0) {
+      return new ReportSummary(totals, Collections.<String, UnitTestResults>emptyMap());
+    }
+    int count = buffer.getInt();
+    Map<String, UnitTestResults> suites = new LinkedHashMap<>();
+    for (int i = 0; i < count; i++) {
+      byte[] name = new byte[buffer.getShort() & 0xFFFF];
+      buffer.get(name);
+      suites.put(new String(name, StandardCharsets.UTF_8), getTotals(buffer));
+    }
+    return new ReportSummary(totals, suites);
+  }
+
+  private static UnitTestResults getTotals(ByteBuffer buffer) {
+    UnitTestResults results = new UnitTestResults();
+    results.add(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getLong());
+    return results;
+  }
+
+  /**
+   * Rolls the stored test cases up by suite, classified as in the report
+   * totals so the rollups add up to them: googletest "notrun" test cases are
+   * failures.
+   */
+  public static Map<String, UnitTestResults> suites(TestCaseStore testCases) {
+    Map<String, UnitTestResults> suites = new LinkedHashMap<>();
+    for (int row = 0; row < testCases.size(); row++) {
+      String name = testCases.suite(row) != null ? testCases.suite(row) : "";
+      UnitTestResults suite = suites.get(name);
+      if (suite == null) {
+        suite = new UnitTestResults();
+        suites.put(name, suite);
+      }
+      byte status = testCases.status(row);
+      boolean failure = status == TestCaseStore.STATUS_FAILURE || status == TestCaseStore.STATUS_NOT_RUN;
+      suite.add(1, status == TestCaseStore.STATUS_OK ? 1 : 0, status == TestCaseStore.STATUS_SKIPPED ? 1 : 0,
+        failure ? 1 : 0, status == TestCaseStore.STATUS_ERROR ? 1 : 0,
+        testCases.time(row));
+    }
+    return suites;
+  }
+}
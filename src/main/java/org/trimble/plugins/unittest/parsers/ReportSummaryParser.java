@@ -0,0 +1,31 @@
+package org.trimble.plugins.unittest.parsers;
+
+import java.io.File;
+import java.io.IOException;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Imports the totals of the binary summaries written by the importer, see
+ * {@link ReportSummary}
+ */
+public class ReportSummaryParser implements ReportParser {
+  public static final Logger LOG = Loggers.get(ReportSummaryParser.class);
+
+  @Override
+  public Boolean parse(File report, UnitTestResults unitTestResults) {
+    return parse(report, unitTestResults, new ReportStatistics(report));
+  }
+
+  @Override
+  public Boolean parse(File report, UnitTestResults unitTestResults, ReportStatistics statistics) {
+    statistics.parser("summary");
+    try {
+      unitTestResults.merge(ReportSummary.read(report).totals());
+      return true;
+    } catch (IOException e) {
+      LOG.debug("Cannot read summary '{}': {}", report, e.getMessage());
+      return false;
+    }
+  }
+}
@@ -15,17 +15,35 @@ public class UnitTestResults {
   int skipped = 0;
   int failures = 0;
   int errors = 0;
-  Long duration = 0L;
+  long durationMillis = 0L;
   
-  void add(int tests, int passed, int skipped, int failures, int errors, Long duration) {
+  void add(int tests, int passed, int skipped, int failures, int errors, long durationMillis) {
     this.tests += tests;
     this.passed += passed;
     this.skipped += skipped;
     this.failures += failures;
     this.errors += errors;
-    this.duration += duration;
+    this.durationMillis += durationMillis;
   }  
 
+  /**
+   * Adds the counters collected by another results instance to this one
+   *
+   * @param other the partial results to merge
+   */
+  public void merge(UnitTestResults other) {
+    add(other.tests, other.passed, other.skipped, other.failures, other.errors, other.durationMillis);
+  }
+
+  /**
+   * Truncates a test case time in milliseconds, as read from the reports, to
+   * the whole milliseconds the duration is accumulated in. Every test case is
+   * truncated before being summed, as the execution time measure always was.
+   */
+  static long millis(double millis) {
+    return (long) millis;
+  }
+
   public int getTests() {
     return this.tests;
   }
@@ -42,7 +60,10 @@ public class UnitTestResults {
     return this.skipped;
   }
 
+  /**
+   * Returns the total duration in milliseconds
+   */
   public Long getTestTime() {
-    return this.duration;
+    return this.durationMillis;
   }
 }
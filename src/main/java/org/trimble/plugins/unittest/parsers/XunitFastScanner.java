@@ -0,0 +1,482 @@
+package org.trimble.plugins.unittest.parsers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Locale;
+import org.sonar.api.utils.ParsingUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.trimble.plugins.unittest.utils.ReportStreams;
+
+/**
+ * Byte level scanner for JUnit/xUnit reports. The report is memory mapped and
+ * scanned for testsuite and testcase tags and their status/time attributes
+ * without decoding it into characters nor building a StAX event stream.
+ *
+ * The scanner applies the same counting rules as {@link XunitReportParser}.
+ * It gives up, returning false, as soon as it meets anything it does not
+ * handle (compressed reports, non ASCII compatible encodings, doctype
+ * subsets, entity references in the interesting attributes, malformed
+ * markup...) so the caller can fall back to the StAX parser.
+ */
+final class XunitFastScanner {
+  public static final Logger LOG = Loggers.get(XunitFastScanner.class);
+
+  private static final byte[] TESTSUITE = bytes("testsuite");
+  private static final byte[] TESTCASE = bytes("testcase");
+  private static final byte[] SKIPPED = bytes("skipped");
+  private static final byte[] FAILURE = bytes("failure");
+  private static final byte[] ERROR = bytes("error");
+  private static final byte[] STATUS = bytes("status");
+  private static final byte[] TIME = bytes("time");
+  private static final byte[] NOTRUN = bytes("notrun");
+  private static final byte[] COMMENT = bytes("<!--");
+  private static final byte[] COMMENT_END = bytes("-->");
+  private static final byte[] CDATA = bytes("<![CDATA[");
+  private static final byte[] CDATA_END = bytes("]]>");
+  private static final byte[] PI_END = bytes("?>");
+
+  private static final byte OTHER = 0;
+  private static final byte ACTIVE_SUITE = 1;
+  private static final byte COUNTED_CASE = 2;
+
+  private static final int CHILD_NONE = 0;
+  private static final int CHILD_SKIPPED = 1;
+  private static final int CHILD_FAILURE = 2;
+  private static final int CHILD_ERROR = 3;
+  private static final int CHILD_OTHER = 4;
+
+  private final MappedBytes data;
+  private final UnitTestResults results;
+  private long pos;
+
+  private int depth = 0;
+  private long[] nameStarts = new long[32];
+  private int[] nameLengths = new int[32];
+  private byte[] kinds = new byte[32];
+  private int activeSuites = 0;
+  private int suitesFound = 0;
+
+  private boolean caseNotRun;
+  private double caseTime;
+  private int caseChild;
+
+  // attributes of the start tag being scanned
+  private long statusStart;
+  private int statusLength;
+  private long timeStart;
+  private int timeLength;
+
+  private XunitFastScanner(MappedBytes data, UnitTestResults results) {
+    this.data = data;
+    this.results = results;
+  }
+
+  /**
+   * Scans the given report and adds its counters to the results
+   *
+   * @return false if the report could not be handled, the results are then
+   * left untouched
+   */
+  static boolean scan(File report, UnitTestResults results) {
+    if (report.length() == 0) {
+      return false;
+    }
+    try {
+      if (ReportStreams.compression(report) != ReportStreams.Compression.NONE) {
+        LOG.debug("Fast scanner cannot map compressed report '{}', falling back to StAX", report);
+        return false;
+      }
+    } catch (IOException e) {
+      LOG.debug("Cannot read report '{}': {}", report, e.getMessage());
+      return false;
+    }
+    try (RandomAccessFile file = new RandomAccessFile(report, "r")) {
+      UnitTestResults scanned = new UnitTestResults();
+      if (new XunitFastScanner(MappedBytes.map(file.getChannel()), scanned).scan()) {
+        results.merge(scanned);
+        return true;
+      }
+    } catch (IOException e) {
+      LOG.debug("Cannot map report '{}': {}", report, e.getMessage());
+    }
+    LOG.debug("Fast scanner cannot handle '{}', falling back to StAX", report);
+    return false;
+  }
+
+  private boolean scan() {
+    pos = 0;
+    long size = data.size();
+    if (size >= 3 && at(0) == (byte) 0xEF && at(1) == (byte) 0xBB && at(2) == (byte) 0xBF) {
+      pos = 3;
+    }
+    boolean seenRoot = false;
+    while (pos < size) {
+      byte b = at(pos);
+      if (b != '<') {
+        if (b >= 0 && b < 0x20 && b != '\n' && b != '\r' && b != '\t') {
+          return false;
+        }
+        pos++;
+        continue;
+      }
+
+      byte next = at(pos + 1);
+      boolean handled;
+      if (next == '!') {
+        handled = skipDeclaration();
+      } else if (next == '?') {
+        handled = skipPast(PI_END);
+      } else if (next == '/') {
+        handled = endTag();
+      } else {
+        if (depth == 0) {
+          if (seenRoot) {
+            return false;
+          }
+          seenRoot = true;
+        }
+        handled = startTag();
+      }
+      if (!handled) {
+        return false;
+      }
+    }
+    return seenRoot && depth == 0 && suitesFound > 0;
+  }
+
+  private boolean skipDeclaration() {
+    if (startsWith(pos, COMMENT)) {
+      return skipPast(COMMENT_END);
+    }
+    if (startsWith(pos, CDATA)) {
+      return depth > 0 && skipPast(CDATA_END);
+    }
+    // doctype without internal subset
+    long end = indexOf((byte) '>', pos);
+    if (depth > 0 || end < 0 || indexOf((byte) '[', pos, end) >= 0) {
+      return false;
+    }
+    pos = end + 1;
+    return true;
+  }
+
+  private boolean startTag() {
+    long nameStart = pos + 1;
+    long nameEnd = nameEnd(nameStart);
+    int nameLength = (int) (nameEnd - nameStart);
+    if (nameLength == 0) {
+      return false;
+    }
+
+    byte parent = depth > 0 ? kinds[depth - 1] : OTHER;
+    byte kind = OTHER;
+    if (equals(nameStart, nameLength, TESTSUITE) && (parent == ACTIVE_SUITE || activeSuites == 0)) {
+      kind = ACTIVE_SUITE;
+    } else if (parent == ACTIVE_SUITE && equals(nameStart, nameLength, TESTCASE)) {
+      kind = COUNTED_CASE;
+    } else if (parent == COUNTED_CASE && caseChild == CHILD_NONE) {
+      caseChild = classifyChild(nameStart, nameLength);
+    }
+
+    statusLength = -1;
+    timeLength = -1;
+    pos = nameEnd;
+    int closing = attributes(kind == COUNTED_CASE);
+    if (closing < 0) {
+      return false;
+    }
+
+    if (kind == ACTIVE_SUITE) {
+      suitesFound++;
+    } else if (kind == COUNTED_CASE && !openCase()) {
+      return false;
+    }
+
+    if (closing == 1) {
+      if (kind == COUNTED_CASE) {
+        closeCase();
+      }
+      return true;
+    }
+    push(nameStart, nameLength, kind);
+    return true;
+  }
+
+  /**
+   * Scans the attributes of the current start tag
+   *
+   * @return 0 for an open tag, 1 for an empty element tag, -1 on error
+   */
+  private int attributes(boolean recordCaseAttributes) {
+    while (true) {
+      skipWhitespace();
+      byte b = at(pos);
+      if (b == '>') {
+        pos++;
+        return 0;
+      }
+      if (b == '/') {
+        if (at(pos + 1) != '>') {
+          return -1;
+        }
+        pos += 2;
+        return 1;
+      }
+
+      long attrStart = pos;
+      long attrEnd = nameEnd(attrStart);
+      if (attrEnd == attrStart) {
+        return -1;
+      }
+      pos = attrEnd;
+      skipWhitespace();
+      if (at(pos) != '=') {
+        return -1;
+      }
+      pos++;
+      skipWhitespace();
+      byte quote = at(pos);
+      if (quote != '"' && quote != '\'') {
+        return -1;
+      }
+      long valueStart = pos + 1;
+      long valueEnd = indexOf(quote, valueStart);
+      if (valueEnd < 0) {
+        return -1;
+      }
+      pos = valueEnd + 1;
+
+      if (recordCaseAttributes) {
+        int attrLength = (int) (attrEnd - attrStart);
+        int valueLength = (int) (valueEnd - valueStart);
+        if (equals(attrStart, attrLength, STATUS)) {
+          statusStart = valueStart;
+          statusLength = valueLength;
+        } else if (equals(attrStart, attrLength, TIME)) {
+          timeStart = valueStart;
+          timeLength = valueLength;
+        } else {
+          continue;
+        }
+        if (indexOf((byte) '&', valueStart, valueEnd) >= 0) {
+          return -1;
+        }
+      }
+    }
+  }
+
+  private boolean endTag() {
+    if (depth == 0) {
+      return false;
+    }
+    long nameStart = pos + 2;
+    long nameEnd = nameEnd(nameStart);
+    int nameLength = (int) (nameEnd - nameStart);
+    if (nameLength != nameLengths[depth - 1] || !equals(nameStart, nameLengths[depth - 1], nameStarts[depth - 1])) {
+      return false;
+    }
+    pos = nameEnd;
+    skipWhitespace();
+    if (at(pos) != '>') {
+      return false;
+    }
+    pos++;
+
+    depth--;
+    if (kinds[depth] == ACTIVE_SUITE) {
+      activeSuites--;
+    } else if (kinds[depth] == COUNTED_CASE) {
+      closeCase();
+    }
+    return true;
+  }
+
+  private boolean openCase() {
+    caseChild = CHILD_NONE;
+    caseNotRun = statusLength >= 0 && equals(statusStart, statusLength, NOTRUN);
+    caseTime = 0.0;
+    if (timeLength > 0) {
+      Double time = parseTime(timeStart, timeLength);
+      if (time == null) {
+        return false;
+      }
+      caseTime = time;
+    }
+    return true;
+  }
+
+  private void closeCase() {
+    long time = UnitTestResults.millis(caseTime);
+    if (caseNotRun) {
+      results.add(1, 0, 0, 1, 0, time);
+    } else if (caseChild == CHILD_SKIPPED) {
+      results.add(1, 0, 1, 0, 0, time);
+    } else if (caseChild == CHILD_FAILURE) {
+      results.add(1, 0, 0, 1, 0, time);
+    } else if (caseChild == CHILD_ERROR) {
+      results.add(1, 0, 0, 0, 1, time);
+    } else {
+      results.add(1, 1, 0, 0, 0, time);
+    }
+    caseChild = CHILD_NONE;
+  }
+
+  private int classifyChild(long nameStart, int nameLength) {
+    if (equals(nameStart, nameLength, SKIPPED)) {
+      return CHILD_SKIPPED;
+    } else if (equals(nameStart, nameLength, FAILURE)) {
+      return CHILD_FAILURE;
+    } else if (equals(nameStart, nameLength, ERROR)) {
+      return CHILD_ERROR;
+    }
+    return CHILD_OTHER;
+  }
+
+  /**
+   * Same conversion as the StAX parser: seconds to milliseconds scaled to 3
+   * decimals. Plain decimal numbers are converted without a NumberFormat.
+   *
+   * @return the time in milliseconds, null if the value is not a number
+   */
+  private Double parseTime(long start, int length) {
+    byte[] raw = new byte[length];
+    boolean plain = length < 19;
+    boolean dot = false;
+    for (int i = 0; i < length; i++) {
+      byte b = at(start + i);
+      raw[i] = b;
+      if (b == '.' && !dot && i > 0) {
+        dot = true;
+      } else if (b < '0' || b > '9') {
+        plain = false;
+      }
+    }
+    String value = new String(raw, StandardCharsets.ISO_8859_1);
+    double seconds;
+    if (plain) {
+      seconds = Double.parseDouble(value);
+    } else {
+      try {
+        seconds = ParsingUtils.parseNumber(value, Locale.ENGLISH);
+      } catch (ParseException e) {
+        return null;
+      }
+      if (Double.isNaN(seconds)) {
+        return 0.0;
+      }
+    }
+    return ParsingUtils.scaleValue(seconds * 1000, 3);
+  }
+
+  private void push(long nameStart, int nameLength, byte kind) {
+    if (depth == kinds.length) {
+      nameStarts = Arrays.copyOf(nameStarts, depth * 2);
+      nameLengths = Arrays.copyOf(nameLengths, depth * 2);
+      kinds = Arrays.copyOf(kinds, depth * 2);
+    }
+    nameStarts[depth] = nameStart;
+    nameLengths[depth] = nameLength;
+    kinds[depth] = kind;
+    if (kind == ACTIVE_SUITE) {
+      activeSuites++;
+    }
+    depth++;
+  }
+
+  private boolean skipPast(byte[] terminator) {
+    long index = indexOf(terminator, pos + 2);
+    if (index < 0) {
+      return false;
+    }
+    pos = index + terminator.length;
+    return true;
+  }
+
+  private void skipWhitespace() {
+    while (pos < data.size() && isWhitespace(at(pos))) {
+      pos++;
+    }
+  }
+
+  private long nameEnd(long from) {
+    long end = from;
+    long size = data.size();
+    while (end < size) {
+      byte b = at(end);
+      if (isWhitespace(b) || b == '>' || b == '/' || b == '=') {
+        break;
+      }
+      end++;
+    }
+    return end;
+  }
+
+  private long indexOf(byte value, long from) {
+    return indexOf(value, from, data.size());
+  }
+
+  private long indexOf(byte value, long from, long to) {
+    for (long i = from; i < to; i++) {
+      if (at(i) == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private long indexOf(byte[] value, long from) {
+    long i = from;
+    while ((i = indexOf(value[0], i)) >= 0) {
+      if (startsWith(i, value)) {
+        return i;
+      }
+      i++;
+    }
+    return -1;
+  }
+
+  private boolean startsWith(long at, byte[] value) {
+    if (at + value.length > data.size()) {
+      return false;
+    }
+    return equals(at, value.length, value);
+  }
+
+  private boolean equals(long start, int length, byte[] value) {
+    if (length != value.length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (at(start + i) != value[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean equals(long start, int length, long other) {
+    for (int i = 0; i < length; i++) {
+      if (at(start + i) != at(other + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private byte at(long index) {
+    return index < data.size() ? data.get(index) : 0;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -22,34 +22,42 @@ package org.trimble.plugins.unittest.parsers;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Writer;
 import java.text.ParseException;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.stream.XMLStreamException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
-import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
+import org.apache.commons.io.IOUtils;
 import org.codehaus.staxmate.in.ElementFilter;
 import org.codehaus.staxmate.in.SMHierarchicCursor;
 import org.codehaus.staxmate.in.SMInputCursor;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.ParsingUtils;
 import org.sonar.api.utils.log.Loggers;
-import org.trimble.plugins.unittest.utils.TestCase;
+import org.trimble.plugins.unittest.utils.ContentDigest;
 import org.trimble.plugins.unittest.utils.EmptyReportException;
+import org.trimble.plugins.unittest.utils.ReportStreams;
 import org.trimble.plugins.unittest.utils.StaxParser;
+import org.trimble.plugins.unittest.utils.StylesheetCache;
+import org.trimble.plugins.unittest.utils.TestCaseStore;
+import org.trimble.plugins.unittest.utils.XmlFactories;
 import org.trimble.plugins.unittest.utils.StaxParser.XmlStreamHandler;
 
 /**
@@ -58,23 +66,94 @@ import org.trimble.plugins.unittest.utils.StaxParser.XmlStreamHandler;
 public class XunitReportParser implements ReportParser {
   public static final org.sonar.api.utils.log.Logger LOG = Loggers.get(XunitReportParser.class);
   public static final String XSLT_URL_KEY = "sonar.unittests.xunit.xsltURL";
+  public static final String FAST_SCANNER_KEY = "sonar.unittests.xunit.fastScanner";
+  public static final String ROOT_SUMMARY_KEY = "sonar.unittests.xunit.rootSummary";
+  public static final String SPLIT_THRESHOLD_KEY = "sonar.unittests.xunit.splitThresholdMB";
+  
+  private static final int TRANSFORM_PIPE_SIZE = 64 * 1024;
+  private static final long MEGABYTE = 1024L * 1024L;
+  private static final int PARTS_PER_THREAD = 4;
+  private static final int MAX_DETAIL_CHARS = 64 * 1024;
+  private static final String TRUNCATED = "\n[truncated]";
   
   private final String xsltURL;
+  private final StylesheetCache stylesheets;
+  private final boolean fastScanner;
+  private final boolean rootSummary;
+  private final long splitThreshold;
+  private volatile ExecutorService splitExecutor;
+  private volatile int splitThreads;
+  private final XmlFactories xmlFactories;
 
   public XunitReportParser(Settings settings) {
+    this(settings, new XmlFactories());
+  }
+
+  public XunitReportParser(Settings settings, XmlFactories xmlFactories) {
     xsltURL = settings.getString(XSLT_URL_KEY);
+    stylesheets = new StylesheetCache(stylesheetDownloadDir(settings));
+    fastScanner = settings.getBoolean(FAST_SCANNER_KEY);
+    rootSummary = settings.getBoolean(ROOT_SUMMARY_KEY);
+    splitThreshold = settings.getLong(SPLIT_THRESHOLD_KEY) * MEGABYTE;
+    this.xmlFactories = xmlFactories;
   }
 
   XunitReportParser() {
+    this(0);
+  }
+
+  /**
+   * @param splitThreshold the size in bytes from which reports are parsed on
+   * several threads, 0 to never split them
+   */
+  XunitReportParser(long splitThreshold) {
     xsltURL = null;
+    stylesheets = new StylesheetCache(null);
+    fastScanner = false;
+    rootSummary = false;
+    this.splitThreshold = splitThreshold;
+    xmlFactories = new XmlFactories();
+  }
+
+  /**
+   * @return true if reports above the split threshold may be parsed on
+   * several threads, given an executor
+   */
+  public boolean splitsReports() {
+    return splitThreshold > 0 && xsltURL == null;
+  }
+
+  /**
+   * Sets the executor the parts of split reports are parsed on. It is owned
+   * by the caller, which sizes it once for all the reports of an analysis
+   * and shuts it down.
+   *
+   * @param executor the executor to parse parts on, null to not split reports
+   * @param threads the number of threads of the executor
+   */
+  public void splitExecutor(ExecutorService executor, int threads) {
+    splitExecutor = executor;
+    splitThreads = threads;
+  }
+
+  private static File stylesheetDownloadDir(Settings settings) {
+    String userHome = settings.getString("sonar.userHome");
+    File sonarHome = userHome != null ? new File(userHome) : new File(System.getProperty("user.home"), ".sonar");
+    return new File(sonarHome, "cache" + File.separator + "unittest-xslt");
   }
   
   private static class Parser implements XmlStreamHandler {
-    private final List<TestCase> testCases = new LinkedList<>();
+    private final TestCaseStore testCases;
     private UnitTestResults unitTestResults;
 
-    private Parser(UnitTestResults unitTestResults) {
+    /**
+     * @param testCases the store receiving the parsed test cases, null to only
+     * update the counters without storing test cases nor reading failure
+     * messages and stack traces
+     */
+    private Parser(UnitTestResults unitTestResults, TestCaseStore testCases) {
       this.unitTestResults = unitTestResults;
+      this.testCases = testCases;
     }
     
   /**
@@ -96,8 +175,9 @@ public class XunitReportParser implements ReportParser {
 
   public void parseTestSuiteTag(SMInputCursor testSuiteCursor)
     throws XMLStreamException {
-    String testSuiteName = testSuiteCursor.getAttrValue("name");
-    String testSuiteFName = testSuiteCursor.getAttrValue("filename");
+    boolean detailed = testCases != null;
+    String testSuiteName = detailed ? testCases.intern(testSuiteCursor.getAttrValue("name")) : null;
+    String testSuiteFName = detailed ? testCases.intern(testSuiteCursor.getAttrValue("filename")) : null;
 
     SMInputCursor childCursor = testSuiteCursor.childElementCursor();
     while (childCursor.getNext() != null) {
@@ -105,52 +185,86 @@ public class XunitReportParser implements ReportParser {
       if ("testsuite".equals(elementName)) {
         parseTestSuiteTag(childCursor);
       } else if ("testcase".equals(elementName)) {
-        testCases.add(parseTestCaseTag(childCursor, testSuiteName, testSuiteFName));
+        parseTestCaseTag(childCursor, testSuiteName, testSuiteFName, detailed);
       }
     }
   }
 
-  private TestCase parseTestCaseTag(SMInputCursor testCaseCursor, String tsName, String tsFilename)
+  private void parseTestCaseTag(SMInputCursor testCaseCursor, String tsName, String tsFilename, boolean detailed)
     throws XMLStreamException {
-    String classname = testCaseCursor.getAttrValue("classname");
-    String tcFilename = testCaseCursor.getAttrValue("filename");
-    String name = parseTestCaseName(testCaseCursor);
-    Double time = parseTime(testCaseCursor);
-    String status = "ok";
+    String classname = null;
+    String tcFilename = null;
+    String name = null;
+    if (detailed) {
+      classname = testCases.intern(testCaseCursor.getAttrValue("classname"));
+      tcFilename = testCases.intern(testCaseCursor.getAttrValue("filename"));
+      // qualified with the classname by the store on read
+      name = testCaseCursor.getAttrValue("name");
+    }
+    double time = parseTime(testCaseCursor);
+    long millis = UnitTestResults.millis(time);
+    byte status = TestCaseStore.STATUS_OK;
     String stack = "";
     String msg = "";
 
     // Googletest-reports mark the skipped tests with status="notrun"
     String statusattr = testCaseCursor.getAttrValue("status");
     if ("notrun".equals(statusattr)) {
-      status = "skipped";
-      this.unitTestResults.add(1, 0, 0, 1, 0, time.longValue());
+      status = TestCaseStore.STATUS_NOT_RUN;
+      this.unitTestResults.add(1, 0, 0, 1, 0, millis);
     } else {
       SMInputCursor childCursor = testCaseCursor.childElementCursor();
       if (childCursor.getNext() != null) {
         String elementName = childCursor.getLocalName();
         if ("skipped".equals(elementName)) {
-          this.unitTestResults.add(1, 0, 1, 0, 0, time.longValue());
-          status = "skipped";
+          this.unitTestResults.add(1, 0, 1, 0, 0, millis);
+          status = TestCaseStore.STATUS_SKIPPED;
         } else if ("failure".equals(elementName)) {
-          this.unitTestResults.add(1, 0, 0, 1, 0, time.longValue());
-          status = "failure";
-          msg = childCursor.getAttrValue("message");
-          stack = childCursor.collectDescendantText();
+          this.unitTestResults.add(1, 0, 0, 1, 0, millis);
+          status = TestCaseStore.STATUS_FAILURE;
+          if (detailed) {
+            msg = truncate(childCursor.getAttrValue("message"));
+            stack = collectText(childCursor);
+          }
         } else if ("error".equals(elementName)) {
-          this.unitTestResults.add(1, 0, 0, 0, 1, time.longValue());
-          status = "error";
-          msg = childCursor.getAttrValue("message");
-          stack = childCursor.collectDescendantText();
+          this.unitTestResults.add(1, 0, 0, 0, 1, millis);
+          status = TestCaseStore.STATUS_ERROR;
+          if (detailed) {
+            msg = truncate(childCursor.getAttrValue("message"));
+            stack = collectText(childCursor);
+          }
         }
       }
     }
     
-    if (status.equals("ok")) {
-      this.unitTestResults.add(1, 1, 0, 0, 0, time.longValue());
+    if (status == TestCaseStore.STATUS_OK) {
+      this.unitTestResults.add(1, 1, 0, 0, 0, millis);
     }
 
-    return new TestCase(name, time.intValue(), status, stack, msg, classname, tcFilename, tsName, tsFilename);
+    if (detailed) {
+      testCases.add(name, (int) time, status, stack, msg, classname, tcFilename, tsName, tsFilename);
+    }
+  }
+
+  /**
+   * Collects the text of the element, past {@link #MAX_DETAIL_CHARS} the
+   * text is dropped as it is read
+   */
+  private static String collectText(SMInputCursor cursor) throws XMLStreamException {
+    TruncatingWriter text = new TruncatingWriter();
+    try {
+      cursor.processDescendantText(text, false);
+    } catch (IOException e) {
+      throw new XMLStreamException(e);
+    }
+    return text.toString();
+  }
+
+  private static String truncate(String text) {
+    if (text == null || text.length() <= MAX_DETAIL_CHARS) {
+      return text;
+    }
+    return text.substring(0, MAX_DETAIL_CHARS) + TRUNCATED;
   }
 
   private double parseTime(SMInputCursor testCaseCursor)
@@ -170,56 +284,228 @@ public class XunitReportParser implements ReportParser {
 
     return time;
   }
+      
+  }
+
+
+  /**
+   * Parses the report through the configured stylesheet. The transformation
+   * runs on a companion thread and its output is piped through a bounded
+   * buffer straight into the stream handler, the transformed document never
+   * touches the disk.
+   */
+  void parseTransformed(File report, StaxParser parser, ReportStatistics statistics)
+    throws IOException, TransformerException, XMLStreamException {
+    LOG.debug("Transforming the report using xslt '{}'", xsltURL);
+    Transformer xformer = stylesheets.get(xsltURL).newTransformer();
+
+    PipedInputStream transformed = new PipedInputStream(TRANSFORM_PIPE_SIZE);
+    Transformation transformationTask = new Transformation(xformer, report, statistics.contentDigest(),
+      new PipedOutputStream(transformed));
+    FutureTask<Void> transformation = new FutureTask<>(transformationTask);
+    Thread transformer = new Thread(transformation, "xslt " + report.getName());
+    transformer.setDaemon(true);
+    transformer.start();
 
-  private String parseTestCaseName(SMInputCursor testCaseCursor) throws XMLStreamException {
-    String name = testCaseCursor.getAttrValue("name");
-    String classname = testCaseCursor.getAttrValue("classname");
-    if (classname != null) {
-      name = classname + "/" + name;
+    try {
+      parser.parse(transformed);
+    } finally {
+      // unblocks the transformer if the parser stopped before the end of the document
+      IOUtils.closeQuietly(transformed);
+      awaitTransformation(transformation);
+      statistics.addTime(ReportStatistics.Phase.TRANSFORM, transformationTask.elapsedNanos);
     }
-    return name;
   }
-      
+
+  private static void awaitTransformation(FutureTask<Void> transformation) throws TransformerException {
+    try {
+      transformation.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TransformerException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof TransformerException) {
+        throw (TransformerException) e.getCause();
+      }
+      throw new TransformerException(e.getCause());
+    }
   }
 
+  /**
+   * Keeps the first {@link #MAX_DETAIL_CHARS} characters written to it
+   */
+  private static final class TruncatingWriter extends Writer {
+    private final StringBuilder text = new StringBuilder();
+    private boolean truncated = false;
 
-  File transformReport(File report)
-    throws java.io.IOException, javax.xml.transform.TransformerException {
-    File transformed = report;
-    if (xsltURL != null && report.length() > 0) {
-      LOG.debug("Transforming the report using xslt '{}'", xsltURL);
-      InputStream inputStream = this.getClass().getResourceAsStream("/xsl/" + xsltURL);
-      if (inputStream == null) {
-        LOG.debug("Transforming: try to access external XSLT via URL");
-        URL url = new URL(xsltURL);
-        inputStream = url.openStream();
-      }
+    @Override
+    public void write(char[] buffer, int offset, int length) {
+      int kept = Math.min(length, MAX_DETAIL_CHARS - text.length());
+      text.append(buffer, offset, kept);
+      truncated |= kept < length;
+    }
+
+    @Override
+    public void write(String value, int offset, int length) {
+      int kept = Math.min(length, MAX_DETAIL_CHARS - text.length());
+      text.append(value, offset, offset + kept);
+      truncated |= kept < length;
+    }
 
-      Source xsl = new StreamSource(inputStream);
-      TransformerFactory factory = TransformerFactory.newInstance();
-      Templates template = factory.newTemplates(xsl);
-      Transformer xformer = template.newTransformer();
-      xformer.setOutputProperty(OutputKeys.INDENT, "yes");
+    @Override
+    public void flush() {
+      // nothing buffered
+    }
 
-      Source source = new StreamSource(report);
-      transformed = new File(report.getAbsolutePath() + ".after_xslt");
-      Result result = new StreamResult(transformed);
-      xformer.transform(source, result);
-    } else {
-      LOG.debug("Transformation skipped: no xslt given");
+    @Override
+    public void close() {
+      // nothing to release
     }
 
-    return transformed;
-  }  
+    @Override
+    public String toString() {
+      return truncated ? text + TRUNCATED : text.toString();
+    }
+  }
+
+  private static class Transformation implements Callable<Void> {
+    private final Transformer xformer;
+    private final File report;
+    private final ContentDigest digest;
+    private final OutputStream output;
+    private volatile long elapsedNanos = 0;
+
+    Transformation(Transformer xformer, File report, ContentDigest digest, OutputStream output) {
+      this.xformer = xformer;
+      this.report = report;
+      this.digest = digest;
+      this.output = output;
+    }
+
+    @Override
+    public Void call() throws IOException, TransformerException {
+      long start = System.nanoTime();
+      InputStream input = null;
+      try {
+        // compressed reports are transformed from their decompressed stream
+        input = ReportStreams.open(report, digest);
+        xformer.transform(new StreamSource(input, report.toURI().toString()), new StreamResult(output));
+      } finally {
+        IOUtils.closeQuietly(input);
+        IOUtils.closeQuietly(output);
+        elapsedNanos = System.nanoTime() - start;
+      }
+      return null;
+    }
+  }
 
+  /**
+   * Updates the counters only, test cases are not built and failure details
+   * are skipped. When enabled, reports which need no transformation are
+   * first tried with their root summary, then with the byte level scanner,
+   * then split and parsed on several threads when large enough.
+   */
   @Override
   public Boolean parse(File report, UnitTestResults unitTestResults) {
+    return parse(report, unitTestResults, new ReportStatistics(report));
+  }
 
-    Parser parserHandler = new Parser(unitTestResults);
-    StaxParser parser = new StaxParser(parserHandler, false);
+  @Override
+  public Boolean parse(File report, UnitTestResults unitTestResults, ReportStatistics statistics) {
+    if (rootSummary && xsltURL == null && XunitRootSummary.read(report, xmlFactories, unitTestResults)) {
+      LOG.debug("Used the root summary of report '{}'", report);
+      statistics.parser("xunit-root-summary");
+      return true;
+    }
+    if (fastScanner && xsltURL == null && XunitFastScanner.scan(report, unitTestResults)) {
+      LOG.debug("Processed report '{}' with the fast scanner", report);
+      statistics.parser("xunit-fast-scanner");
+      return true;
+    }
+    if (splitsReports() && splitExecutor != null && splitThreads > 1 && report.length() >= splitThreshold
+      && parseSplit(report, unitTestResults)) {
+      statistics.parser("xunit-split");
+      return true;
+    }
+    return parse(report, unitTestResults, (TestCaseStore) null, statistics);
+  }
+
+  /**
+   * Parses the report split at its top level test suites, the parts being
+   * parsed concurrently on the split executor into results of their own
+   * which are merged once all parts are done
+   *
+   * @return false if the report cannot be split or a part failed, the
+   * results are then left untouched
+   */
+  boolean parseSplit(File report, UnitTestResults unitTestResults) {
+    ExecutorService executor = splitExecutor;
+    if (executor == null) {
+      return false;
+    }
+    final XunitReportSplit split = XunitReportSplit.split(report, splitThreads * PARTS_PER_THREAD);
+    if (split == null) {
+      LOG.debug("Report '{}' cannot be split, parsing it on a single thread", report);
+      return false;
+    }
+    LOG.debug("Parsing '{}' parts of report '{}' using '{}' threads", split.parts(), report,
+      Math.min(splitThreads, split.parts()));
+    List<Callable<UnitTestResults>> parts = new ArrayList<>(split.parts());
+    for (int i = 0; i < split.parts(); i++) {
+      final int part = i;
+      parts.add(new Callable<UnitTestResults>() {
+        @Override
+        public UnitTestResults call() throws XMLStreamException {
+          UnitTestResults partResults = new UnitTestResults();
+          new StaxParser(xmlFactories, new Parser(partResults, null), false).parse(split.part(part));
+          return partResults;
+        }
+      });
+    }
+
+    try {
+      UnitTestResults merged = new UnitTestResults();
+      for (Future<UnitTestResults> part : executor.invokeAll(parts)) {
+        merged.merge(part.get());
+      }
+      unitTestResults.merge(merged);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      LOG.debug("Cannot parse a part of report '{}': {}", report, e.getCause().getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Updates the counters and adds every parsed test case, including failure
+   * messages and stack traces, to the given store
+   */
+  public Boolean parse(File report, UnitTestResults unitTestResults, TestCaseStore testCases) {
+    return parse(report, unitTestResults, testCases, new ReportStatistics(report));
+  }
+
+  /**
+   * Same as {@link #parse(File, UnitTestResults, TestCaseStore)}, recording
+   * the parser used and the transformation time
+   */
+  public Boolean parse(File report, UnitTestResults unitTestResults, TestCaseStore testCases,
+    ReportStatistics statistics) {
+
+    Parser parserHandler = new Parser(unitTestResults, testCases);
+    StaxParser parser = new StaxParser(xmlFactories, parserHandler, false);
     LOG.info("Processing report '{}'", report);
       try {
-        parser.parse(transformReport(report));
+        if (xsltURL != null && report.length() > 0) {
+          statistics.parser("xunit-xslt");
+          parseTransformed(report, parser, statistics);
+        } else {
+          LOG.debug("Transformation skipped: no xslt given");
+          statistics.parser("xunit-stax");
+          parser.parse(report, statistics.contentDigest());
+        }
         
       } catch (IOException ex) {
         return false;
@@ -0,0 +1,307 @@
+package org.trimble.plugins.unittest.parsers;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.trimble.plugins.unittest.utils.ReportStreams;
+
+/**
+ * Splits a memory mapped xUnit report at the boundaries of the testsuite
+ * elements directly below its testsuites root, so the parts can be parsed on
+ * several threads. The report is scanned once, tracking the element depth
+ * only. Every part is a document of its own: the original prolog and root
+ * start tag, a run of consecutive top level elements and the root end tag.
+ * The parts hold every byte of the root content exactly once, so parsing
+ * them all counts the same test cases as parsing the whole report.
+ *
+ * Reports are not split when the scan meets anything it does not handle
+ * (compression, non ASCII compatible encodings, doctype subsets which could
+ * declare markup, a root other than testsuites, malformed markup...).
+ */
+final class XunitReportSplit {
+  public static final Logger LOG = Loggers.get(XunitReportSplit.class);
+
+  private static final byte[] COMMENT = bytes("<!--");
+  private static final byte[] COMMENT_END = bytes("-->");
+  private static final byte[] CDATA = bytes("<![CDATA[");
+  private static final byte[] CDATA_END = bytes("]]>");
+  private static final byte[] PI_END = bytes("?>");
+  private static final byte[] TESTSUITES = bytes("testsuites");
+  private static final byte[] TESTSUITE = bytes("testsuite");
+
+  private final MappedBytes data;
+  private final byte[] prolog;
+  private final byte[] rootEnd;
+  private final long[] boundaries;
+
+  private XunitReportSplit(MappedBytes data, byte[] prolog, byte[] rootEnd, long[] boundaries) {
+    this.data = data;
+    this.prolog = prolog;
+    this.rootEnd = rootEnd;
+    this.boundaries = boundaries;
+  }
+
+  /**
+   * Splits the report in parts of about the same size
+   *
+   * @param parts the wanted number of parts, fewer are made when the report
+   * has fewer top level test suites
+   * @return the split report, null if it cannot be split in at least two parts
+   */
+  static XunitReportSplit split(File report, int parts) {
+    try {
+      if (ReportStreams.compression(report) != ReportStreams.Compression.NONE) {
+        return null;
+      }
+      MappedBytes data;
+      try (RandomAccessFile file = new RandomAccessFile(report, "r")) {
+        // the mapping remains valid once the file is closed
+        data = MappedBytes.map(file.getChannel());
+      }
+      return new Scanner(data).split(parts);
+    } catch (IOException e) {
+      LOG.debug("Cannot map report '{}': {}", report, e.getMessage());
+      return null;
+    }
+  }
+
+  int parts() {
+    return boundaries.length - 1;
+  }
+
+  /**
+   * Returns a standalone document holding the given part of the report
+   */
+  InputStream part(int part) {
+    return new SequenceInputStream(Collections.enumeration(Arrays.asList(
+      new ByteArrayInputStream(prolog),
+      data.stream(boundaries[part], boundaries[part + 1]),
+      new ByteArrayInputStream(rootEnd))));
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Finds the root start tag, the start offsets of the top level test suites
+   * and the root end tag
+   */
+  private static final class Scanner {
+    private final MappedBytes data;
+    private final long size;
+    private long pos = 0;
+    private long[] suites = new long[64];
+    private int suiteCount = 0;
+
+    Scanner(MappedBytes data) {
+      this.data = data;
+      this.size = data.size();
+    }
+
+    XunitReportSplit split(int parts) {
+      if (size >= 2 && (at(0) == 0 || at(1) == 0 || at(0) == (byte) 0xFE || at(0) == (byte) 0xFF)) {
+        // UTF-16 or UTF-32
+        return null;
+      }
+      int depth = 0;
+      long rootStart = -1;
+      long contentStart = -1;
+      long contentEnd = -1;
+      while (pos < size && contentEnd < 0) {
+        if (at(pos) != '<') {
+          pos++;
+          continue;
+        }
+        byte next = at(pos + 1);
+        boolean handled;
+        if (next == '!') {
+          handled = skipDeclaration();
+        } else if (next == '?') {
+          handled = skipPast(PI_END);
+        } else if (next == '/') {
+          long tagStart = pos;
+          handled = skipTag();
+          depth--;
+          if (depth == 0) {
+            contentEnd = tagStart;
+          }
+        } else {
+          long tagStart = pos;
+          long nameEnd = nameEnd(pos + 1);
+          handled = skipTag();
+          boolean empty = handled && at(pos - 2) == '/';
+          if (depth == 0) {
+            if (!hasLocalName(tagStart + 1, nameEnd, TESTSUITES) || empty) {
+              return null;
+            }
+            rootStart = tagStart;
+            contentStart = pos;
+          } else if (depth == 1 && hasLocalName(tagStart + 1, nameEnd, TESTSUITE)) {
+            addSuite(tagStart);
+          }
+          if (!empty) {
+            depth++;
+          }
+        }
+        if (!handled || depth < 0) {
+          return null;
+        }
+      }
+      if (contentEnd < 0 || suiteCount < 2) {
+        return null;
+      }
+      long[] boundaries = boundaries(contentStart, contentEnd, parts);
+      if (boundaries.length < 3) {
+        return null;
+      }
+      return new XunitReportSplit(data, copy(0, contentStart), rootEnd(rootStart), boundaries);
+    }
+
+    /**
+     * Cuts the root content before the top level test suites closest to
+     * every multiple of the wanted part size, the first part starts with the
+     * root content so holds any element found before the first suite
+     */
+    private long[] boundaries(long contentStart, long contentEnd, int parts) {
+      long partSize = Math.max(1, (contentEnd - contentStart) / Math.max(1, parts));
+      long[] boundaries = new long[Math.min(parts, suiteCount) + 1];
+      int count = 0;
+      boundaries[count++] = contentStart;
+      for (int i = 1; i < suiteCount && count < boundaries.length - 1; i++) {
+        if (suites[i] - boundaries[count - 1] >= partSize) {
+          boundaries[count++] = suites[i];
+        }
+      }
+      boundaries[count++] = contentEnd;
+      return Arrays.copyOf(boundaries, count);
+    }
+
+    private byte[] rootEnd(long rootStart) {
+      long nameEnd = nameEnd(rootStart + 1);
+      byte[] name = copy(rootStart + 1, nameEnd);
+      byte[] end = new byte[name.length + 3];
+      end[0] = '<';
+      end[1] = '/';
+      System.arraycopy(name, 0, end, 2, name.length);
+      end[end.length - 1] = '>';
+      return end;
+    }
+
+    private void addSuite(long offset) {
+      if (suiteCount == suites.length) {
+        suites = Arrays.copyOf(suites, suiteCount * 2);
+      }
+      suites[suiteCount++] = offset;
+    }
+
+    private boolean skipDeclaration() {
+      if (startsWith(COMMENT)) {
+        return skipPast(COMMENT_END);
+      }
+      if (startsWith(CDATA)) {
+        return skipPast(CDATA_END);
+      }
+      // doctype, an internal subset could declare entities expanding to markup
+      while (pos < size) {
+        byte b = at(pos++);
+        if (b == '[') {
+          return false;
+        }
+        if (b == '>') {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Moves past the end of the tag at the current position, quoted
+     * attribute values may hold '>'
+     */
+    private boolean skipTag() {
+      byte quote = 0;
+      for (pos++; pos < size; pos++) {
+        byte b = at(pos);
+        if (quote != 0) {
+          if (b == quote) {
+            quote = 0;
+          }
+        } else if (b == '"' || b == '\'') {
+          quote = b;
+        } else if (b == '>') {
+          pos++;
+          return true;
+        } else if (b == '<') {
+          return false;
+        }
+      }
+      return false;
+    }
+
+    private boolean skipPast(byte[] terminator) {
+      for (long i = pos; i + terminator.length <= size; i++) {
+        if (matches(i, terminator)) {
+          pos = i + terminator.length;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private long nameEnd(long start) {
+      long end = start;
+      while (end < size) {
+        byte b = at(end);
+        if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>') {
+          break;
+        }
+        end++;
+      }
+      return end;
+    }
+
+    private boolean hasLocalName(long start, long end, byte[] name) {
+      long localStart = start;
+      for (long i = start; i < end; i++) {
+        if (at(i) == ':') {
+          localStart = i + 1;
+        }
+      }
+      return end - localStart == name.length && matches(localStart, name);
+    }
+
+    private boolean startsWith(byte[] prefix) {
+      return pos + prefix.length <= size && matches(pos, prefix);
+    }
+
+    private boolean matches(long offset, byte[] value) {
+      for (int i = 0; i < value.length; i++) {
+        if (at(offset + i) != value[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private byte[] copy(long start, long end) {
+      byte[] copy = new byte[(int) (end - start)];
+      for (int i = 0; i < copy.length; i++) {
+        copy[i] = at(start + i);
+      }
+      return copy;
+    }
+
+    private byte at(long index) {
+      return index < size ? data.get(index) : 0;
+    }
+  }
+}
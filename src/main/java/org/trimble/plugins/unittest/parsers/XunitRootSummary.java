@@ -0,0 +1,105 @@
+package org.trimble.plugins.unittest.parsers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.Locale;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.sonar.api.utils.ParsingUtils;
+import org.trimble.plugins.unittest.utils.ReportStreams;
+import org.trimble.plugins.unittest.utils.XmlFactories;
+
+/**
+ * Reads the totals many producers (surefire, pytest, CTest...) write on the
+ * testsuites or top level testsuite element, so the test cases do not have
+ * to be walked. Only the root start tag is parsed.
+ *
+ * The summary is used only when it is complete and agrees with what walking
+ * the test cases would count: tests, failures, errors, skipped and time must
+ * all be present and consistent, and no test may be disabled since
+ * googletest "notrun" test cases are counted as failures by the walk.
+ */
+final class XunitRootSummary {
+
+  private XunitRootSummary() {
+  }
+
+  /**
+   * @return true if the totals have been added to the results, false if the
+   * report must be walked
+   */
+  static boolean read(File report, XmlFactories xmlFactories, UnitTestResults results) {
+    try (InputStream input = ReportStreams.openHead(report)) {
+      XMLStreamReader stream = xmlFactories.xmlInputFactory().createXMLStreamReader(input);
+      try {
+        while (stream.hasNext()) {
+          if (stream.next() == XMLStreamConstants.START_ELEMENT) {
+            return readRoot(stream, results);
+          }
+        }
+        return false;
+      } finally {
+        stream.close();
+      }
+    } catch (IOException | XMLStreamException e) {
+      return false;
+    }
+  }
+
+  private static boolean readRoot(XMLStreamReader stream, UnitTestResults results) {
+    String root = stream.getLocalName();
+    if (!"testsuites".equals(root) && !"testsuite".equals(root)) {
+      return false;
+    }
+    int tests = count(stream, "tests");
+    int failures = count(stream, "failures");
+    int errors = count(stream, "errors");
+    int skipped = count(stream, "skipped");
+    String disabled = stream.getAttributeValue(null, "disabled");
+    if (tests < 0 || failures < 0 || errors < 0 || skipped < 0 || failures + errors + skipped > tests
+      || disabled != null && count(stream, "disabled") != 0) {
+      return false;
+    }
+    long millis = time(stream.getAttributeValue(null, "time"));
+    if (millis < 0) {
+      return false;
+    }
+    results.add(tests, tests - failures - errors - skipped, skipped, failures, errors, millis);
+    return true;
+  }
+
+  /**
+   * @return the value of a counter attribute, -1 if absent or invalid
+   */
+  private static int count(XMLStreamReader stream, String name) {
+    String value = stream.getAttributeValue(null, name);
+    if (value == null) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Same conversion as the test case times of the walk
+   *
+   * @return the time in milliseconds, -1 if absent or invalid
+   */
+  private static long time(String seconds) {
+    if (seconds == null || seconds.isEmpty()) {
+      return -1;
+    }
+    try {
+      double value = ParsingUtils.parseNumber(seconds, Locale.ENGLISH);
+      return Double.isNaN(value) || value < 0 ? -1 : UnitTestResults.millis(ParsingUtils.scaleValue(value * 1000, 3));
+    } catch (ParseException e) {
+      return -1;
+    }
+  }
+}
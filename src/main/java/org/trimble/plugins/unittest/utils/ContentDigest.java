@@ -0,0 +1,97 @@
+package org.trimble.plugins.unittest.utils;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+/**
+ * SHA-1 digest of a report computed from the bytes read while parsing it,
+ * so recording the report in the report cache does not read it a second
+ * time. Only the first stream opened on the report is digested, see
+ * {@link ReportStreams#open(File, ContentDigest)}, and the digest is known
+ * when that stream went through the whole file.
+ */
+public final class ContentDigest {
+
+  /**
+   * Bytes left after the end of the document which are still read on close
+   * to complete the digest, parsers stop at the end of the root element
+   */
+  private static final long DRAIN_LIMIT = 1024L * 1024L;
+
+  private final MessageDigest digest = FileDigest.newDigest();
+  private boolean wrapped = false;
+  private long bytes = 0;
+  private String value;
+
+  /**
+   * Returns the hex encoded digest of the report, null if the report was not
+   * entirely read through a digesting stream
+   */
+  public String value(File report) {
+    if (value == null && wrapped && bytes == report.length()) {
+      value = FileDigest.toHex(digest.digest());
+    }
+    return value;
+  }
+
+  /**
+   * Digests the raw content of the report as it is read, returns the stream
+   * unchanged when a stream was already digested
+   */
+  InputStream wrap(InputStream file, final long length) {
+    if (wrapped) {
+      return file;
+    }
+    wrapped = true;
+    return new FilterInputStream(file) {
+      @Override
+      public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+          digest.update((byte) b);
+          bytes++;
+        }
+        return b;
+      }
+
+      @Override
+      public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = in.read(buffer, offset, length);
+        if (read > 0) {
+          digest.update(buffer, offset, read);
+          bytes += read;
+        }
+        return read;
+      }
+
+      @Override
+      public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        int read = read(buffer, 0, buffer.length);
+        return Math.max(read, 0);
+      }
+
+      @Override
+      public boolean markSupported() {
+        return false;
+      }
+
+      @Override
+      public void close() throws IOException {
+        try {
+          if (length - bytes <= DRAIN_LIMIT) {
+            byte[] buffer = new byte[8192];
+            while (read(buffer, 0, buffer.length) != -1) {
+              // digests the trailing bytes
+            }
+          }
+        } finally {
+          in.close();
+        }
+      }
+    };
+  }
+}
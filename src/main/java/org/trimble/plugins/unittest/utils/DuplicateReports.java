@@ -0,0 +1,66 @@
+package org.trimble.plugins.unittest.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Drops the reports whose content is identical to an earlier report, as
+ * found by overlapping report paths (shard directories and their aggregate
+ * copies, leftovers of earlier runs...). Only reports sharing their size
+ * with another one are hashed, the others cannot have a duplicate.
+ */
+public final class DuplicateReports {
+  public static final Logger LOG = Loggers.get(DuplicateReports.class);
+
+  private DuplicateReports() {
+  }
+
+  /**
+   * @param reports the reports, in the order they are to be parsed
+   * @return the reports without the copies of earlier ones, in the same order
+   */
+  public static List<File> remove(List<File> reports) {
+    Map<Long, Integer> sizes = new HashMap<>(reports.size() * 2);
+    for (File report : reports) {
+      Long size = report.length();
+      Integer count = sizes.get(size);
+      sizes.put(size, count == null ? 1 : count + 1);
+    }
+
+    List<File> unique = new ArrayList<>(reports.size());
+    Set<String> digests = new HashSet<>();
+    for (File report : reports) {
+      if (sizes.get(report.length()) == 1 || isFirstCopy(report, digests)) {
+        unique.add(report);
+      }
+    }
+    if (unique.size() < reports.size()) {
+      LOG.info("Skipped '{}' reports with the same content as another report", reports.size() - unique.size());
+    }
+    return unique;
+  }
+
+  private static boolean isFirstCopy(File report, Set<String> digests) {
+    String digest;
+    try {
+      digest = FileDigest.sha1(report);
+    } catch (IOException e) {
+      LOG.debug("Cannot hash report '{}', keeping it: {}", report, e.getMessage());
+      return true;
+    }
+    // the size and the digest together identify the content
+    if (!digests.add(report.length() + ":" + digest)) {
+      LOG.debug("Skipping report '{}', its content was already imported", report);
+      return false;
+    }
+    return true;
+  }
+}
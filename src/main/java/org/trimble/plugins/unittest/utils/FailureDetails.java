@@ -0,0 +1,137 @@
+package org.trimble.plugins.unittest.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Failure messages and stack traces of a {@link TestCaseStore}. Texts are
+ * kept on the heap until their estimated size reaches the budget, later ones
+ * are spilled UTF-8 encoded to a temporary file and read back on demand, so
+ * the heap used does not grow with the number of failed test cases.
+ *
+ * Not thread safe.
+ */
+final class FailureDetails implements Closeable {
+
+  private static final int ABSENT = -1;
+
+  private final long heapBudget;
+  private final File spillDirectory;
+  private int size = 0;
+  private String[] texts = new String[0];
+  private long[] offsets = new long[0];
+  private int[] lengths = new int[0];
+  private long heapBytes = 0;
+  private File spillFile;
+  private FileChannel spill;
+  private long spilledBytes = 0;
+
+  /**
+   * @param heapBudget the estimated heap size texts may use, in bytes
+   * @param spillDirectory where the spill file is created, null for the
+   * default temporary directory
+   */
+  FailureDetails(long heapBudget, File spillDirectory) {
+    this.heapBudget = heapBudget;
+    this.spillDirectory = spillDirectory;
+  }
+
+  /**
+   * Appends a text, null included
+   *
+   * @return the index of the text
+   */
+  int add(String text) {
+    if (size == texts.length) {
+      int capacity = Math.max(32, size * 2);
+      texts = Arrays.copyOf(texts, capacity);
+      offsets = Arrays.copyOf(offsets, capacity);
+      lengths = Arrays.copyOf(lengths, capacity);
+    }
+    int index = size++;
+    lengths[index] = ABSENT;
+    if (text != null) {
+      long cost = StringPool.heapSize(text);
+      if (heapBytes + cost <= heapBudget) {
+        texts[index] = text;
+        heapBytes += cost;
+      } else {
+        spill(index, text);
+      }
+    }
+    return index;
+  }
+
+  private void spill(int index, String text) {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    try {
+      if (spill == null) {
+        spillFile = File.createTempFile("unittest-failures", ".bin", spillDirectory);
+        spill = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      long position = spilledBytes;
+      while (buffer.hasRemaining()) {
+        position += spill.write(buffer, position);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot spill failure details to '" + spillFile + "'", e);
+    }
+    offsets[index] = spilledBytes;
+    lengths[index] = bytes.length;
+    spilledBytes += bytes.length;
+  }
+
+  String get(int index) {
+    if (texts[index] != null || lengths[index] == ABSENT) {
+      return texts[index];
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(lengths[index]);
+    try {
+      long position = offsets[index];
+      while (buffer.hasRemaining()) {
+        int read = spill.read(buffer, position + buffer.position());
+        if (read < 0) {
+          throw new IOException("Unexpected end of file");
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot read failure details from '" + spillFile + "'", e);
+    }
+    return new String(buffer.array(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the estimated heap size of the texts kept on the heap
+   */
+  long heapBytes() {
+    return heapBytes;
+  }
+
+  long spilledBytes() {
+    return spilledBytes;
+  }
+
+  /**
+   * Deletes the spill file, spilled texts cannot be read anymore
+   */
+  @Override
+  public void close() {
+    if (spill != null) {
+      try {
+        spill.close();
+      } catch (IOException e) {
+        // deleted below anyway
+      }
+      spill = null;
+      FileUtils.deleteQuietly(spillFile);
+    }
+  }
+}
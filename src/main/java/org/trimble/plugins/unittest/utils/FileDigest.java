@@ -0,0 +1,57 @@
+package org.trimble.plugins.unittest.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Streaming content digest of report files
+ */
+public final class FileDigest {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private FileDigest() {
+  }
+
+  /**
+   * Returns the hex encoded SHA-1 digest of the file content, reading the
+   * file in fixed size chunks
+   */
+  public static String sha1(File file) throws IOException {
+    MessageDigest digest = newDigest();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    InputStream input = new FileInputStream(file);
+    try {
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+    return toHex(digest.digest());
+  }
+
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static String toHex(byte[] hash) {
+    char[] hex = new char[hash.length * 2];
+    for (int i = 0; i < hash.length; i++) {
+      hex[2 * i] = HEX[(hash[i] >> 4) & 0xF];
+      hex[2 * i + 1] = HEX[hash[i] & 0xF];
+    }
+    return new String(hex);
+  }
+}
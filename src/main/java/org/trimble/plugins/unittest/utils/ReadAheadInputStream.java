@@ -0,0 +1,210 @@
+package org.trimble.plugins.unittest.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a file on a background thread into a few direct buffers ahead of the
+ * consumer, so parsing a chunk overlaps with reading the next ones instead of
+ * waiting on every read. The buffers are pooled and reused by later streams.
+ *
+ * Not thread safe, a stream is read by one thread at a time.
+ */
+final class ReadAheadInputStream extends InputStream {
+
+  static final int CHUNK_SIZE = 256 * 1024;
+  private static final int CHUNKS_AHEAD = 4;
+  private static final int MAX_POOLED_BUFFERS = 16;
+  private static final long HAND_OFF_POLL_MS = 50;
+  private static final ByteBuffer END = ByteBuffer.allocate(0);
+  private static final Queue<ByteBuffer> BUFFERS = new ConcurrentLinkedQueue<>();
+  private static final ExecutorService READERS = Executors.newCachedThreadPool(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable task) {
+      Thread thread = new Thread(task, "unittest-read-ahead");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private final FileChannel channel;
+  private final BlockingQueue<ByteBuffer> chunks = new ArrayBlockingQueue<>(CHUNKS_AHEAD);
+  private final CountDownLatch readerDone = new CountDownLatch(1);
+  private volatile boolean closed = false;
+  private volatile IOException failure;
+  private ByteBuffer current;
+
+  /**
+   * Starts reading the channel, which is closed with the stream
+   */
+  ReadAheadInputStream(FileChannel channel) {
+    this.channel = channel;
+    READERS.execute(new Runnable() {
+      @Override
+      public void run() {
+        readAhead();
+      }
+    });
+  }
+
+  private void readAhead() {
+    try {
+      boolean end = false;
+      while (!end && !closed) {
+        ByteBuffer buffer = acquire();
+        try {
+          end = fill(buffer);
+        } catch (IOException | RuntimeException e) {
+          release(buffer);
+          throw e;
+        }
+        ((Buffer) buffer).flip();
+        if (!handOff(buffer)) {
+          release(buffer);
+          return;
+        }
+      }
+    } catch (IOException e) {
+      failure = e;
+    } catch (RuntimeException e) {
+      failure = new IOException(e);
+    } finally {
+      handOff(END);
+      readerDone.countDown();
+    }
+  }
+
+  /**
+   * @return true if the end of the file has been reached
+   */
+  private boolean fill(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Queues a chunk for the consumer, waiting for room unless the stream gets
+   * closed meanwhile
+   */
+  private boolean handOff(ByteBuffer buffer) {
+    try {
+      while (!closed) {
+        if (chunks.offer(buffer, HAND_OFF_POLL_MS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  /**
+   * Returns the chunk to read from, null at the end of the file
+   */
+  private ByteBuffer next() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    while (current == null || !current.hasRemaining()) {
+      if (current == END) {
+        return null;
+      }
+      release(current);
+      try {
+        current = chunks.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the read ahead");
+      }
+      if (current == END && failure != null) {
+        throw new IOException(failure.getMessage(), failure);
+      }
+    }
+    return current;
+  }
+
+  @Override
+  public int read() throws IOException {
+    ByteBuffer chunk = next();
+    return chunk != null ? chunk.get() & 0xFF : -1;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    ByteBuffer chunk = next();
+    if (chunk == null) {
+      return -1;
+    }
+    int count = Math.min(length, chunk.remaining());
+    chunk.get(buffer, offset, count);
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return current != null && !closed ? current.remaining() : 0;
+  }
+
+  /**
+   * Stops the read ahead, waiting for the chunk being read if any, and gives
+   * the buffers back to the pool
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      readerDone.await();
+    } catch (InterruptedException e) {
+      // the reader stops at its next hand off anyway, its buffers are not pooled
+      Thread.currentThread().interrupt();
+      channel.close();
+      return;
+    }
+    release(current);
+    current = null;
+    ByteBuffer chunk;
+    while ((chunk = chunks.poll()) != null) {
+      release(chunk);
+    }
+    channel.close();
+  }
+
+  private static ByteBuffer acquire() {
+    ByteBuffer buffer = BUFFERS.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(CHUNK_SIZE);
+    }
+    ((Buffer) buffer).clear();
+    return buffer;
+  }
+
+  private static void release(ByteBuffer buffer) {
+    if (buffer != null && buffer != END && BUFFERS.size() < MAX_POOLED_BUFFERS) {
+      BUFFERS.offer(buffer);
+    }
+  }
+}
@@ -0,0 +1,279 @@
+package org.trimble.plugins.unittest.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Finds the files matching absolute Ant-style include patterns ("**" for any
+ * number of directories, "*" and "?" within a name). Every pattern is walked
+ * from its fixed leading directories only, and directories no pattern can
+ * match below are not entered. Patterns sharing a root are walked together,
+ * independent roots are walked in parallel.
+ *
+ * The files found are the ones Ant's DirectoryScanner includes for the same
+ * patterns without a base directory: case sensitive, following symbolic
+ * links and without default excludes.
+ */
+public final class ReportFinder {
+  public static final Logger LOG = Loggers.get(ReportFinder.class);
+  private static final String ANY_DIRECTORIES = "**";
+  private static final String SEPARATOR = Pattern.quote(File.separator);
+  private static final String NOT_SEPARATOR = "[^" + SEPARATOR + "]";
+
+  private ReportFinder() {
+  }
+
+  /**
+   * @param includes absolute, normalized include patterns
+   * @return the matching regular files, sorted by path
+   */
+  public static List<File> find(List<String> includes) {
+    List<Root> roots = new ArrayList<>();
+    Set<File> found = new TreeSet<>();
+    for (Include include : sortedByBase(includes)) {
+      if (include.isLiteral()) {
+        if (Files.isRegularFile(include.base)) {
+          found.add(include.base.toFile());
+        }
+        continue;
+      }
+      Root root = rootOf(roots, include);
+      if (root != null) {
+        root.includes.add(include);
+      } else if (Files.isDirectory(include.base)) {
+        roots.add(new Root(include));
+      }
+    }
+
+    if (roots.size() == 1) {
+      found.addAll(roots.get(0).call());
+    } else if (!roots.isEmpty()) {
+      found.addAll(walkInParallel(roots));
+    }
+    return new ArrayList<>(found);
+  }
+
+  private static Root rootOf(List<Root> roots, Include include) {
+    for (Root root : roots) {
+      if (include.base.startsWith(root.base)) {
+        return root;
+      }
+    }
+    return null;
+  }
+
+  private static List<Include> sortedByBase(List<String> includes) {
+    List<Include> sorted = new ArrayList<>(includes.size());
+    for (String include : includes) {
+      sorted.add(new Include(include));
+    }
+    // ancestors sort before their descendants
+    Collections.sort(sorted, new Comparator<Include>() {
+      @Override
+      public int compare(Include a, Include b) {
+        return a.base.compareTo(b.base);
+      }
+    });
+    return sorted;
+  }
+
+  private static List<File> walkInParallel(List<Root> roots) {
+    int threads = Math.min(roots.size(), Runtime.getRuntime().availableProcessors());
+    LOG.debug("Walking '{}' report roots using '{}' threads", roots.size(), threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<List<File>>> walks = executor.invokeAll(roots);
+      List<File> found = new ArrayList<>();
+      for (Future<List<File>> walk : walks) {
+        found.addAll(walk.get());
+      }
+      return found;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while searching unit test reports", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Failed to search unit test reports", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * One include pattern, split into its fixed base directory and the name
+   * patterns of every path level
+   */
+  private static final class Include {
+    private final String[] tokens;
+    private final Pattern[] names;
+    private final int fixedTokens;
+    private final Path base;
+    private final PathMatcher matcher;
+
+    Include(String include) {
+      String pattern = include.replace('/', File.separatorChar).replace('\\', File.separatorChar);
+      if (pattern.endsWith(File.separator)) {
+        pattern += ANY_DIRECTORIES;
+      }
+      tokens = pattern.split(SEPARATOR, -1);
+      names = new Pattern[tokens.length];
+      int fixed = -1;
+      StringBuilder regex = new StringBuilder();
+      for (int i = 0; i < tokens.length; i++) {
+        boolean last = i == tokens.length - 1;
+        if (ANY_DIRECTORIES.equals(tokens[i])) {
+          regex.append(last ? ".*" : "(?:" + NOT_SEPARATOR + "*" + SEPARATOR + ")*");
+        } else {
+          names[i] = Pattern.compile(nameRegex(tokens[i]));
+          regex.append(names[i].pattern()).append(last ? "" : SEPARATOR);
+        }
+        if (fixed < 0 && (tokens[i].indexOf('*') >= 0 || tokens[i].indexOf('?') >= 0)) {
+          fixed = i;
+        }
+      }
+      fixedTokens = fixed < 0 ? tokens.length : fixed;
+      base = Paths.get(join(tokens, fixedTokens));
+      matcher = FileSystems.getDefault().getPathMatcher("regex:" + regex);
+    }
+
+    private static String nameRegex(String token) {
+      StringBuilder regex = new StringBuilder();
+      StringBuilder literal = new StringBuilder();
+      for (char c : token.toCharArray()) {
+        if (c == '*' || c == '?') {
+          if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+            literal.setLength(0);
+          }
+          regex.append(c == '*' ? NOT_SEPARATOR + "*" : NOT_SEPARATOR);
+        } else {
+          literal.append(c);
+        }
+      }
+      if (literal.length() > 0) {
+        regex.append(Pattern.quote(literal.toString()));
+      }
+      return regex.toString();
+    }
+
+    private static String join(String[] tokens, int count) {
+      StringBuilder path = new StringBuilder();
+      for (int i = 0; i < count; i++) {
+        path.append(tokens[i]).append(File.separatorChar);
+      }
+      return path.length() == 0 ? File.separator : path.toString();
+    }
+
+    boolean isLiteral() {
+      return fixedTokens == tokens.length;
+    }
+
+    boolean matches(Path file) {
+      return matcher.matches(file);
+    }
+
+    /**
+     * Returns false when no file below the given directory can match, the
+     * directory being below the base directory of the pattern
+     */
+    boolean mayMatchBelow(String[] directory) {
+      int token = 0;
+      for (String name : directory) {
+        if (token == tokens.length) {
+          return false;
+        }
+        if (names[token] == null) {
+          return true;
+        }
+        if (!names[token].matcher(name).matches()) {
+          return false;
+        }
+        token++;
+      }
+      return token < tokens.length;
+    }
+  }
+
+  /**
+   * A directory walked once for all the includes below it
+   */
+  private static final class Root extends SimpleFileVisitor<Path> implements Callable<List<File>> {
+    private final Path base;
+    private final List<Include> includes = new ArrayList<>();
+    private final List<File> found = new ArrayList<>();
+
+    Root(Include include) {
+      this.base = include.base;
+      this.includes.add(include);
+    }
+
+    @Override
+    public List<File> call() {
+      try {
+        Files.walkFileTree(base, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, this);
+      } catch (IOException e) {
+        LOG.warn("Cannot search reports in '{}': {}", base, e.getMessage());
+      }
+      return found;
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+      if (dir.equals(base)) {
+        return FileVisitResult.CONTINUE;
+      }
+      String[] directory = dir.toString().split(SEPARATOR, -1);
+      for (Include include : includes) {
+        if (include.mayMatchBelow(directory)) {
+          return FileVisitResult.CONTINUE;
+        }
+      }
+      return FileVisitResult.SKIP_SUBTREE;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+      if (attrs.isRegularFile()) {
+        for (Include include : includes) {
+          if (include.matches(file)) {
+            found.add(file.toFile());
+            break;
+          }
+        }
+      }
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException e) {
+      LOG.debug("Cannot visit '{}': {}", file, e.getMessage());
+      return FileVisitResult.CONTINUE;
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package org.trimble.plugins.unittest.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Reads the head of the reports about to be parsed on a background thread,
+ * so they are in the operating system cache by the time they are opened.
+ * On network mounted workspaces this hides the latency of the next report
+ * behind the parse of the current one. The rest of large reports is read
+ * ahead while they are parsed, see {@link ReportStreams}.
+ */
+public final class ReportPrefetcher implements Closeable {
+  public static final Logger LOG = Loggers.get(ReportPrefetcher.class);
+
+  private static final long PREFETCH_SIZE = 1024L * 1024L;
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable task) {
+      Thread thread = new Thread(task, "unittest-prefetch");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+  // only used by the prefetch thread
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(ReadAheadInputStream.CHUNK_SIZE);
+
+  /**
+   * Queues the report to be prefetched, does nothing once closed
+   */
+  public void prefetch(final File report) {
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          read(report);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // closed
+    }
+  }
+
+  private void read(File report) {
+    try (FileChannel channel = FileChannel.open(report.toPath(), StandardOpenOption.READ)) {
+      long remaining = PREFETCH_SIZE;
+      int read = 0;
+      while (remaining > 0 && read >= 0 && !Thread.currentThread().isInterrupted()) {
+        ((Buffer) buffer).clear();
+        read = channel.read(buffer);
+        remaining -= read;
+      }
+    } catch (IOException e) {
+      LOG.debug("Cannot prefetch report '{}': {}", report, e.getMessage());
+    }
+  }
+
+  /**
+   * Drops the pending prefetches
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
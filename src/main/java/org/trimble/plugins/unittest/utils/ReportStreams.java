@@ -0,0 +1,130 @@
+package org.trimble.plugins.unittest.utils;
+
+import com.github.luben.zstd.ZstdInputStream;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Opens report files, decompressing gzip and zstd reports on the fly. The
+ * compression is detected from the magic bytes of the file, not from its
+ * name, so compressed reports are read through the same parsers as plain
+ * ones without being extracted to disk.
+ *
+ * Reports larger than a few chunks are read ahead on a background thread
+ * when opened for a full parse, see {@link ReadAheadInputStream},
+ * decompression and parsing overlap with the reads of the next chunks.
+ */
+public final class ReportStreams {
+
+  /**
+   * Compressions recognized from the first bytes of a report
+   */
+  public enum Compression {
+    NONE, GZIP, ZSTD
+  }
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int HEAD_BUFFER_SIZE = 8 * 1024;
+  private static final int MAGIC_SIZE = 4;
+  private static final long READ_AHEAD_MIN_SIZE = 4L * ReadAheadInputStream.CHUNK_SIZE;
+
+  private ReportStreams() {
+  }
+
+  /**
+   * Opens the report for reading, decompressing it if needed
+   *
+   * @return the uncompressed content of the report, to be closed by the caller
+   */
+  public static InputStream open(File report) throws IOException {
+    return open(report, null);
+  }
+
+  /**
+   * Same as {@link #open(File)}, digesting the raw content of the report as
+   * it is read when a digest is given
+   *
+   * @param digest the digest of the report, null to not digest it
+   */
+  public static InputStream open(File report, ContentDigest digest) throws IOException {
+    return open(report, report.length() >= READ_AHEAD_MIN_SIZE, BUFFER_SIZE, digest);
+  }
+
+  /**
+   * Opens the report for reading its first bytes only, decompressing it if
+   * needed. Unlike {@link #open(File)} nothing is read ahead and the buffers
+   * are small, to be used by the readers stopping after a few KB.
+   *
+   * @return the uncompressed content of the report, to be closed by the caller
+   */
+  public static InputStream openHead(File report) throws IOException {
+    return open(report, false, HEAD_BUFFER_SIZE, null);
+  }
+
+  private static InputStream open(File report, boolean readAhead, int bufferSize, ContentDigest digest)
+    throws IOException {
+    InputStream file = readAhead
+      ? new ReadAheadInputStream(FileChannel.open(report.toPath(), StandardOpenOption.READ))
+      : new FileInputStream(report);
+    if (digest != null) {
+      file = digest.wrap(file, report.length());
+    }
+    InputStream input = new BufferedInputStream(file, bufferSize);
+    try {
+      input.mark(MAGIC_SIZE);
+      byte[] magic = new byte[MAGIC_SIZE];
+      int length = IOUtils.read(input, magic);
+      input.reset();
+      switch (compression(magic, length)) {
+        case GZIP:
+          return new GZIPInputStream(input, bufferSize);
+        case ZSTD:
+          return zstd(input, bufferSize);
+        default:
+          return input;
+      }
+    } catch (IOException | RuntimeException e) {
+      IOUtils.closeQuietly(input);
+      throw e;
+    }
+  }
+
+  private static InputStream zstd(InputStream input, int bufferSize) throws IOException {
+    try {
+      return new BufferedInputStream(new ZstdInputStream(input), bufferSize);
+    } catch (UnsatisfiedLinkError | ExceptionInInitializerError | NoClassDefFoundError e) {
+      throw new IOException("zstd is not supported on this platform, decompress the report or use gzip", e);
+    }
+  }
+
+  /**
+   * Detects the compression of the report from its first bytes
+   */
+  public static Compression compression(File report) throws IOException {
+    byte[] magic = new byte[MAGIC_SIZE];
+    InputStream input = new FileInputStream(report);
+    try {
+      return compression(magic, IOUtils.read(input, magic));
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  static Compression compression(byte[] magic, int length) {
+    if (length >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) {
+      return Compression.GZIP;
+    }
+    if (length >= 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5
+      && (magic[2] & 0xFF) == 0x2F && (magic[3] & 0xFF) == 0xFD) {
+      return Compression.ZSTD;
+    }
+    return Compression.NONE;
+  }
+}
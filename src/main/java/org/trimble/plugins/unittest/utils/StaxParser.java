@@ -3,16 +3,11 @@ From : https://github.com/SonarSource/sonarqube/blob/master/sonar-plugin-api/src
  */
 package org.trimble.plugins.unittest.utils;
 
-import com.ctc.wstx.stax.WstxInputFactory;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.net.URL;
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLResolver;
 import javax.xml.stream.XMLStreamException;
 import org.apache.commons.io.IOUtils;
 
@@ -21,9 +16,9 @@ import org.codehaus.staxmate.in.SMHierarchicCursor;
 
 public class StaxParser {
 
-  private SMInputFactory inf;
-  private XmlStreamHandler streamHandler;
-  private boolean isoControlCharsAwareParser;
+  private final SMInputFactory inf;
+  private final XmlStreamHandler streamHandler;
+  private final boolean isoControlCharsAwareParser;
 
   /**
    * Stax parser for a given stream handler and iso control chars set awarness to off
@@ -43,26 +38,41 @@ public class StaxParser {
    * @param isoControlCharsAwareParser true or false
    */
   public StaxParser(XmlStreamHandler streamHandler, boolean isoControlCharsAwareParser) {
+    this(new XmlFactories(), streamHandler, isoControlCharsAwareParser);
+  }
+
+  /**
+   * Stax parser using already configured factories, the construction is then
+   * cheap enough to create a parser per report
+   *
+   * @param factories                  the factories shared by the parsers of an analysis
+   * @param streamHandler              the xml stream handler
+   * @param isoControlCharsAwareParser true or false
+   */
+  public StaxParser(XmlFactories factories, XmlStreamHandler streamHandler, boolean isoControlCharsAwareParser) {
     this.streamHandler = streamHandler;
-    XMLInputFactory xmlFactory = XMLInputFactory.newInstance();
-    if (xmlFactory instanceof WstxInputFactory) {
-      WstxInputFactory wstxInputfactory = (WstxInputFactory) xmlFactory;
-      wstxInputfactory.configureForLowMemUsage();
-      wstxInputfactory.getConfig().setUndeclaredEntityResolver(new UndeclaredEntitiesXMLResolver());
-    }
-    xmlFactory.setProperty(XMLInputFactory.IS_VALIDATING, false);
-    xmlFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
-    xmlFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
     this.isoControlCharsAwareParser = isoControlCharsAwareParser;
-    inf = new SMInputFactory(xmlFactory);
+    inf = factories.smInputFactory();
   }
 
+  /**
+   * Parses the file, decompressing it on the fly when it is a gzip or zstd
+   * compressed report
+   */
   public void parse(File xmlFile) throws XMLStreamException {
-    FileInputStream input = null;
+    parse(xmlFile, null);
+  }
+
+  /**
+   * Same as {@link #parse(File)}, digesting the report as it is read when a
+   * digest is given
+   */
+  public void parse(File xmlFile, ContentDigest digest) throws XMLStreamException {
+    InputStream input = null;
     try {
-      input = new FileInputStream(xmlFile);
+      input = ReportStreams.open(xmlFile, digest);
       parse(input);
-    } catch (FileNotFoundException e) {
+    } catch (IOException e) {
       throw new XMLStreamException(e);
     } finally {
       IOUtils.closeQuietly(input);
@@ -97,20 +107,6 @@ public class StaxParser {
     }
   }
 
-  private static class UndeclaredEntitiesXMLResolver implements XMLResolver {
-    @Override
-    public Object resolveEntity(String arg0, String arg1, String fileName, String undeclaredEntity) throws XMLStreamException {
-      // avoid problems with XML docs containing undeclared entities.. return the entity under its raw form if not an unicode expression
-      if (undeclaredEntity.toLowerCase().startsWith("u") && undeclaredEntity.length() == 5) {
-        int unicodeCharHexValue = Integer.parseInt(undeclaredEntity.substring(1), 16);
-        if (Character.isDefined(unicodeCharHexValue)) {
-          undeclaredEntity = new String(new char[] {(char) unicodeCharHexValue});
-        }
-      }
-      return undeclaredEntity;
-    }
-  }
-
   /**
    * Simple interface for handling XML stream to parse
    */
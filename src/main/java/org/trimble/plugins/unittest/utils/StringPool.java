@@ -0,0 +1,89 @@
+package org.trimble.plugins.unittest.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deduplicates the suite, class and file names repeated by the test cases
+ * of all the reports of an analysis, so every distinct name is kept once
+ * whatever the number of test cases referencing it. Safe to share between
+ * parsing threads.
+ */
+public class StringPool {
+
+  /**
+   * Approximate size of a String besides its characters: object header,
+   * fields and backing array header
+   */
+  private static final int STRING_OVERHEAD = 40;
+
+  private final ConcurrentHashMap<String, String> pool;
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder bytesSaved = new LongAdder();
+
+  /**
+   * @param expectedSize the expected number of distinct names, used to size
+   * the backing map so it does not rehash while parsing
+   */
+  public StringPool(int expectedSize) {
+    this.pool = new ConcurrentHashMap<>(expectedSize);
+  }
+
+  /**
+   * Returns the pooled instance equal to the given value, the value itself
+   * when it is seen for the first time
+   */
+  public String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    lookups.increment();
+    String pooled = pool.get(value);
+    if (pooled == null) {
+      pooled = pool.putIfAbsent(value, value);
+      if (pooled == null) {
+        return value;
+      }
+    }
+    hits.increment();
+    bytesSaved.add(heapSize(value));
+    return pooled;
+  }
+
+  /**
+   * Returns an estimate of the heap used by a String
+   */
+  static long heapSize(String value) {
+    return STRING_OVERHEAD + 2L * value.length();
+  }
+
+  public int size() {
+    return pool.size();
+  }
+
+  public long lookups() {
+    return lookups.sum();
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the share of lookups answered by an already pooled instance, in
+   * percent
+   */
+  public double hitRate() {
+    long total = lookups.sum();
+    return total == 0 ? 0d : hits.sum() * 100d / total;
+  }
+
+  /**
+   * Returns an estimate of the heap the pool spares: the size of every
+   * duplicate instance replaced by a pooled one
+   */
+  public long bytesSaved() {
+    return bytesSaved.sum();
+  }
+}
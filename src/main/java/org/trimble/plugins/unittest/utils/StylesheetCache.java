@@ -0,0 +1,152 @@
+package org.trimble.plugins.unittest.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Compiles XSLT stylesheets once and shares the resulting thread safe
+ * Templates between all the reports of an analysis. Stylesheets fetched from
+ * a remote URL are stored in a local directory. Later analyses revalidate
+ * the local copy with a conditional GET (If-None-Match with the ETag,
+ * If-Modified-Since with the Last-Modified of the download) and only
+ * download the stylesheet again when it changed on the server. The local
+ * copy is used as is when the server cannot be reached.
+ */
+public class StylesheetCache {
+  public static final Logger LOG = Loggers.get(StylesheetCache.class);
+
+  private final Map<String, Templates> compiled = new ConcurrentHashMap<>();
+  private final File downloadDir;
+
+  /**
+   * @param downloadDir the directory used to keep local copies of remote
+   * stylesheets, null to always fetch them
+   */
+  public StylesheetCache(File downloadDir) {
+    this.downloadDir = downloadDir;
+  }
+
+  /**
+   * Returns the compiled stylesheet for the given location, compiling it on
+   * first use. The location is either the name of a stylesheet bundled in
+   * the plugin under /xsl/ or an URL.
+   */
+  public Templates get(String xsltURL) throws IOException, TransformerConfigurationException {
+    Templates templates = compiled.get(xsltURL);
+    if (templates == null) {
+      synchronized (this) {
+        templates = compiled.get(xsltURL);
+        if (templates == null) {
+          templates = compile(xsltURL);
+          compiled.put(xsltURL, templates);
+        }
+      }
+    }
+    return templates;
+  }
+
+  private Templates compile(String xsltURL) throws IOException, TransformerConfigurationException {
+    LOG.debug("Compiling xslt '{}'", xsltURL);
+    StreamSource xsl;
+    InputStream inputStream = this.getClass().getResourceAsStream("/xsl/" + xsltURL);
+    if (inputStream == null) {
+      LOG.debug("Transforming: try to access external XSLT via URL");
+      inputStream = open(new URL(xsltURL));
+      xsl = new StreamSource(inputStream, xsltURL);
+    } else {
+      xsl = new StreamSource(inputStream);
+    }
+
+    try {
+      TransformerFactory factory = TransformerFactory.newInstance();
+      return factory.newTemplates(xsl);
+    } finally {
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
+
+  private InputStream open(URL url) throws IOException {
+    String protocol = url.getProtocol();
+    if (downloadDir == null || "file".equals(protocol) || "jar".equals(protocol)) {
+      return url.openStream();
+    }
+
+    String name = digest(url.toString());
+    File local = new File(downloadDir, name + ".xsl");
+    File etag = new File(downloadDir, name + ".etag");
+    try {
+      refresh(url, local, etag);
+    } catch (IOException e) {
+      if (!local.isFile()) {
+        throw e;
+      }
+      LOG.warn("Cannot revalidate xslt '{}', using local copy '{}': {}", url, local, e.getMessage());
+    }
+    return new FileInputStream(local);
+  }
+
+  /**
+   * Downloads the stylesheet unless the server answers that the local copy
+   * is still current
+   */
+  private void refresh(URL url, File local, File etag) throws IOException {
+    URLConnection connection = url.openConnection();
+    if (local.isFile()) {
+      connection.setIfModifiedSince(local.lastModified());
+      if (etag.isFile()) {
+        connection.setRequestProperty("If-None-Match", new String(Files.readAllBytes(etag.toPath()), StandardCharsets.UTF_8));
+      }
+      if (connection instanceof HttpURLConnection
+        && ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+        LOG.debug("Using local copy '{}' of unchanged xslt '{}'", local, url);
+        ((HttpURLConnection) connection).disconnect();
+        return;
+      }
+    }
+
+    LOG.debug("Downloading xslt '{}' to '{}'", url, local);
+    InputStream remote = connection.getInputStream();
+    File partial = null;
+    try {
+      Files.createDirectories(downloadDir.toPath());
+      partial = File.createTempFile(local.getName(), ".part", downloadDir);
+      Files.copy(remote, partial.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      Files.move(partial.toPath(), local.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      IOUtils.closeQuietly(remote);
+      if (partial != null) {
+        Files.deleteIfExists(partial.toPath());
+      }
+    }
+    if (connection.getLastModified() > 0) {
+      local.setLastModified(connection.getLastModified());
+    }
+    String tag = connection.getHeaderField("ETag");
+    if (tag != null) {
+      Files.write(etag.toPath(), tag.getBytes(StandardCharsets.UTF_8));
+    } else {
+      Files.deleteIfExists(etag.toPath());
+    }
+  }
+
+  private static String digest(String value) {
+    return FileDigest.toHex(FileDigest.newDigest().digest(value.getBytes(StandardCharsets.UTF_8)));
+  }
+}
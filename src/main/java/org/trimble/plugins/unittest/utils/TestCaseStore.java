@@ -0,0 +1,296 @@
+package org.trimble.plugins.unittest.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column oriented storage of parsed test cases. Every test case is a row
+ * spread over arrays: the status is a byte, the time an int and the suite,
+ * class and file names are int ids into a dictionary, so names shared by many
+ * test cases are kept once. Test case names are almost always unique so they
+ * are kept as is in a plain column, a dictionary entry would cost more than
+ * the name. They are qualified with their class name on read, not when
+ * stored. Failure messages and stack traces are stored aside for the failed
+ * rows only, within a heap budget past which they are spilled to a
+ * temporary file.
+ *
+ * Rows are read through their index, iterating the store creates no object
+ * per test case. Not thread safe, to be closed to delete the spilled
+ * details.
+ */
+public class TestCaseStore implements Closeable {
+
+  public static final byte STATUS_OK = 0;
+  public static final byte STATUS_FAILURE = 1;
+  public static final byte STATUS_ERROR = 2;
+  public static final byte STATUS_SKIPPED = 3;
+  /**
+   * Googletest "notrun" test case, skipped for the per test file measures
+   * but a failure in the report totals
+   */
+  public static final byte STATUS_NOT_RUN = 4;
+
+  /**
+   * Id of an absent name
+   */
+  public static final int NONE = -1;
+
+  private static final int INITIAL_CAPACITY = 256;
+  private static final byte STATUS_MASK = 0x0F;
+  private static final byte QUALIFIED_NAME = 0x10;
+
+  private final StringPool pool;
+  private final FailureDetails details;
+  private final Dictionary dictionary = new Dictionary();
+  private int size = 0;
+  private byte[] statuses = new byte[INITIAL_CAPACITY];
+  private int[] times = new int[INITIAL_CAPACITY];
+  private String[] names = new String[INITIAL_CAPACITY];
+  private int[] suites = new int[INITIAL_CAPACITY];
+  private int[] classnames = new int[INITIAL_CAPACITY];
+  private int[] filenames = new int[INITIAL_CAPACITY];
+
+  private int detailCount = 0;
+  private int[] detailRows = new int[0];
+
+  public TestCaseStore() {
+    this(null);
+  }
+
+  /**
+   * @param pool the pool shared by the stores of an analysis, null to not
+   * deduplicate names between stores
+   */
+  public TestCaseStore(StringPool pool) {
+    this(pool, Long.MAX_VALUE, null);
+  }
+
+  /**
+   * @param pool the pool shared by the stores of an analysis, null to not
+   * deduplicate names between stores
+   * @param detailBudget the estimated heap size, in bytes, failure messages
+   * and stack traces may use before being spilled to a temporary file
+   * @param spillDirectory where details past the budget are spilled, null
+   * for the default temporary directory
+   */
+  public TestCaseStore(StringPool pool, long detailBudget, File spillDirectory) {
+    this.pool = pool;
+    this.details = new FailureDetails(detailBudget, spillDirectory);
+  }
+
+  /**
+   * Returns the pooled instance of a suite, class or file name, to be called
+   * by parsers on every such name they read
+   */
+  public String intern(String value) {
+    return pool != null ? pool.intern(value) : value;
+  }
+
+  /**
+   * Appends a test case, with the same fallbacks as {@link TestCase}: the
+   * classname and filename default to the ones of the suite
+   *
+   * @param name the name of the test case, when a classname is given
+   * {@link #name(int)} returns it qualified as "classname/name"
+   * @return the index of the new row
+   */
+  public int add(String name, int time, byte status, String stack, String msg,
+    String classname, String tcFilename, String tsName, String tsFilename) {
+    if (size == statuses.length) {
+      grow();
+    }
+    int row = size++;
+    statuses[row] = classname != null ? (byte) (status | QUALIFIED_NAME) : status;
+    times[row] = time;
+    names[row] = name;
+    suites[row] = dictionary.id(tsName);
+    classnames[row] = dictionary.id(classname != null ? classname : tsName);
+    filenames[row] = dictionary.id(tcFilename != null ? tcFilename : tsFilename);
+    if ((status == STATUS_FAILURE || status == STATUS_ERROR) && (!isEmpty(msg) || !isEmpty(stack))) {
+      addDetail(row, msg, stack);
+    }
+    return row;
+  }
+
+  private static boolean isEmpty(String value) {
+    return value == null || value.isEmpty();
+  }
+
+  private void grow() {
+    int capacity = statuses.length * 2;
+    statuses = Arrays.copyOf(statuses, capacity);
+    times = Arrays.copyOf(times, capacity);
+    names = Arrays.copyOf(names, capacity);
+    suites = Arrays.copyOf(suites, capacity);
+    classnames = Arrays.copyOf(classnames, capacity);
+    filenames = Arrays.copyOf(filenames, capacity);
+  }
+
+  private void addDetail(int row, String msg, String stack) {
+    if (detailCount == detailRows.length) {
+      detailRows = Arrays.copyOf(detailRows, Math.max(16, detailCount * 2));
+    }
+    detailRows[detailCount] = row;
+    // the message of a detail is at twice its index, the stack trace next
+    details.add(msg);
+    details.add(stack);
+    detailCount++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public byte status(int row) {
+    return (byte) (statuses[row] & STATUS_MASK);
+  }
+
+  public boolean isError(int row) {
+    return status(row) == STATUS_ERROR;
+  }
+
+  public boolean isFailure(int row) {
+    return status(row) == STATUS_FAILURE;
+  }
+
+  public boolean isSkipped(int row) {
+    return status(row) == STATUS_SKIPPED || status(row) == STATUS_NOT_RUN;
+  }
+
+  public boolean isNotRun(int row) {
+    return status(row) == STATUS_NOT_RUN;
+  }
+
+  /**
+   * Returns the execution time in milliseconds
+   */
+  public int time(int row) {
+    return times[row];
+  }
+
+  public String name(int row) {
+    String name = names[row];
+    if ((statuses[row] & QUALIFIED_NAME) != 0) {
+      return dictionary.value(classnames[row]) + "/" + name;
+    }
+    return name;
+  }
+
+  /**
+   * Returns the name of the test suite and test case, see
+   * {@link TestCase#getFullname()}
+   */
+  public String fullname(int row) {
+    return dictionary.value(suites[row]) + ":" + name(row);
+  }
+
+  public String suite(int row) {
+    return dictionary.value(suites[row]);
+  }
+
+  public String classname(int row) {
+    return dictionary.value(classnames[row]);
+  }
+
+  public String filename(int row) {
+    return dictionary.value(filenames[row]);
+  }
+
+  /**
+   * Returns the dictionary id of the class name, equal ids denote equal names
+   */
+  public int classnameId(int row) {
+    return classnames[row];
+  }
+
+  /**
+   * Returns the dictionary id of the file name, equal ids denote equal names
+   */
+  public int filenameId(int row) {
+    return filenames[row];
+  }
+
+  /**
+   * Returns the failure or error message, null when there is none
+   */
+  public String message(int row) {
+    int detail = detail(row);
+    return detail < 0 ? null : details.get(2 * detail);
+  }
+
+  /**
+   * Returns the failure or error stack trace, null when there is none
+   */
+  public String stackTrace(int row) {
+    int detail = detail(row);
+    return detail < 0 ? null : details.get(2 * detail + 1);
+  }
+
+  private int detail(int row) {
+    return Arrays.binarySearch(detailRows, 0, detailCount, row);
+  }
+
+  /**
+   * Returns the estimated heap size of the failure details kept on the heap
+   */
+  public long detailHeapBytes() {
+    return details.heapBytes();
+  }
+
+  /**
+   * Returns the size of the failure details spilled to disk, UTF-8 encoded
+   */
+  public long spilledDetailBytes() {
+    return details.spilledBytes();
+  }
+
+  /**
+   * Deletes the spilled failure details, which cannot be read anymore
+   */
+  @Override
+  public void close() {
+    details.close();
+  }
+
+  /**
+   * Returns the number of distinct suite, class and file names kept for the
+   * rows
+   */
+  public int dictionarySize() {
+    return dictionary.size();
+  }
+
+  /**
+   * Maps names to dense int ids, ids are handed out in insertion order
+   */
+  private static final class Dictionary {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int id(String value) {
+      if (value == null) {
+        return NONE;
+      }
+      Integer id = ids.get(value);
+      if (id == null) {
+        id = values.size();
+        ids.put(value, id);
+        values.add(value);
+      }
+      return id;
+    }
+
+    String value(int id) {
+      return id == NONE ? null : values.get(id);
+    }
+
+    int size() {
+      return values.size();
+    }
+  }
+}
@@ -1,13 +1,11 @@
 package org.trimble.plugins.unittest.utils;
 
-import java.util.ArrayList;
-import java.util.List;
 import org.sonar.api.batch.fs.InputFile;
 
 /**
  * Represents a test file in Sonar, i.e. a source code file which implements
- * tests. Holds all test cases along with all measures collected from the
- * reports.
+ * tests. Holds the measures collected from the test cases of the reports,
+ * the test cases themselves are not retained.
  */
 public class TestFile {
 
@@ -16,7 +14,6 @@ public class TestFile {
   private int tests = 0;
   private long time = 0;
   private int failures = 0;
-  private final List<TestCase> testCases;
   private InputFile inputFile = null;
 
   /**
@@ -27,7 +24,6 @@ public class TestFile {
    */
   public TestFile(InputFile inputFile) {
     this.inputFile = inputFile;
-    this.testCases = new ArrayList<>();
   }
 
   public String getKey() {
@@ -70,7 +66,25 @@ public class TestFile {
     }
     tests++;
     time += tc.getTime();
-    testCases.add(tc);
+  }
+
+  /**
+   * Adds the test case stored at the given row to the statistics of this
+   * test file
+   *
+   * @param store the store holding the test case
+   * @param row the index of the test case in the store
+   */
+  public void addTestCase(TestCaseStore store, int row) {
+    if (store.isSkipped(row)) {
+      skipped++;
+    } else if (store.isFailure(row)) {
+      failures++;
+    } else if (store.isError(row)) {
+      errors++;
+    }
+    tests++;
+    time += store.time(row);
   }
 
   public InputFile getInputFile() {
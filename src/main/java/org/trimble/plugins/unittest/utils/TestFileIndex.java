@@ -0,0 +1,157 @@
+package org.trimble.plugins.unittest.utils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Resolves the test cases of the reports to the source files implementing
+ * them. The files of the project are indexed once by file name and by file
+ * name without extension, a test case is then matched against the few files
+ * sharing its file or class name instead of querying the file system. The
+ * outcome of every distinct file or class name is memoized as most test
+ * cases of a suite share them.
+ *
+ * Not thread safe.
+ */
+public class TestFileIndex {
+
+  private static final InputFile UNRESOLVED = null;
+
+  private final Map<String, InputFile> byAbsolutePath = new HashMap<>();
+  private final Map<String, List<InputFile>> byName = new HashMap<>();
+  private final Map<String, List<InputFile>> byStem = new HashMap<>();
+  private final Map<String, InputFile> resolvedFilenames = new HashMap<>();
+  private final Map<String, InputFile> resolvedClassnames = new HashMap<>();
+
+  /**
+   * @param inputFiles the files test cases may be implemented in
+   */
+  public TestFileIndex(Iterable<InputFile> inputFiles) {
+    for (InputFile inputFile : inputFiles) {
+      String path = normalize(inputFile.absolutePath());
+      byAbsolutePath.put(path, inputFile);
+      String name = path.substring(path.lastIndexOf('/') + 1);
+      add(byName, name, inputFile);
+      int extension = name.lastIndexOf('.');
+      add(byStem, extension > 0 ? name.substring(0, extension) : name, inputFile);
+    }
+  }
+
+  private static void add(Map<String, List<InputFile>> index, String key, InputFile inputFile) {
+    List<InputFile> files = index.get(key);
+    if (files == null) {
+      files = new ArrayList<>(1);
+      index.put(key, files);
+    }
+    files.add(inputFile);
+  }
+
+  public int size() {
+    return byAbsolutePath.size();
+  }
+
+  /**
+   * Returns the file implementing the given test case, looked up by the file
+   * name of the report first and by its class name otherwise. Returns null
+   * when no file or more than one file matches.
+   */
+  public InputFile resolve(TestCase testCase) {
+    return resolve(testCase.getFilename(), testCase.getClassname());
+  }
+
+  /**
+   * Returns the file implementing the test case stored at the given row, see
+   * {@link #resolve(TestCase)}
+   */
+  public InputFile resolve(TestCaseStore store, int row) {
+    return resolve(store.filename(row), store.classname(row));
+  }
+
+  private InputFile resolve(String filename, String classname) {
+    InputFile inputFile = UNRESOLVED;
+    if (filename != null && !filename.isEmpty()) {
+      inputFile = resolveFilename(filename);
+    }
+    if (inputFile == UNRESOLVED && classname != null && !classname.isEmpty()) {
+      inputFile = resolveClassname(classname);
+    }
+    return inputFile;
+  }
+
+  private InputFile resolveFilename(String filename) {
+    if (resolvedFilenames.containsKey(filename)) {
+      return resolvedFilenames.get(filename);
+    }
+
+    String path = normalize(filename);
+    InputFile inputFile = byAbsolutePath.get(path);
+    if (inputFile == UNRESOLVED && !new File(filename).isAbsolute()) {
+      path = stripRelativePrefix(path);
+      String name = path.substring(path.lastIndexOf('/') + 1);
+      inputFile = unique(byName.get(name), path.contains("/") ? "/" + path : null);
+    }
+    resolvedFilenames.put(filename, inputFile);
+    return inputFile;
+  }
+
+  private InputFile resolveClassname(String classname) {
+    if (resolvedClassnames.containsKey(classname)) {
+      return resolvedClassnames.get(classname);
+    }
+
+    // e.g. "org.example.FooTest", "example::FooTest" or "FooTest$Inner"
+    String qualified = classname.replace("::", ".").replace('/', '.');
+    int nested = qualified.indexOf('$');
+    if (nested > 0) {
+      qualified = qualified.substring(0, nested);
+    }
+    String stem = qualified.substring(qualified.lastIndexOf('.') + 1);
+    String packagePath = "/" + qualified.replace('.', '/') + ".";
+    InputFile inputFile = unique(byStem.get(stem), null);
+    if (inputFile == UNRESOLVED) {
+      inputFile = unique(byStem.get(stem), packagePath);
+    }
+    resolvedClassnames.put(classname, inputFile);
+    return inputFile;
+  }
+
+  /**
+   * Returns the only candidate whose normalized absolute path contains the
+   * given fragment, null if there is none or more than one
+   */
+  private static InputFile unique(List<InputFile> candidates, String pathFragment) {
+    if (candidates == null) {
+      return UNRESOLVED;
+    }
+    InputFile match = UNRESOLVED;
+    for (InputFile candidate : candidates) {
+      if (pathFragment == null || matches(normalize(candidate.absolutePath()), pathFragment)) {
+        if (match != UNRESOLVED) {
+          return UNRESOLVED;
+        }
+        match = candidate;
+      }
+    }
+    return match;
+  }
+
+  private static boolean matches(String path, String fragment) {
+    return fragment.endsWith(".") ? path.contains(fragment) : path.endsWith(fragment);
+  }
+
+  private static String normalize(String path) {
+    return path.replace('\\', '/');
+  }
+
+  private static String stripRelativePrefix(String path) {
+    String stripped = path;
+    while (stripped.startsWith("./") || stripped.startsWith("../")) {
+      stripped = stripped.substring(stripped.indexOf('/') + 1);
+    }
+    return stripped;
+  }
+}
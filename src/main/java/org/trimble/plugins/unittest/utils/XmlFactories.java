@@ -0,0 +1,53 @@
+package org.trimble.plugins.unittest.utils;
+
+import com.ctc.wstx.stax.WstxInputFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamException;
+import org.codehaus.staxmate.SMInputFactory;
+
+/**
+ * XML input factories shared by all the parsers of an analysis. The JAXP
+ * lookup and the configuration are done once, the factories are not modified
+ * afterwards so they can be used by concurrent parses.
+ */
+public class XmlFactories {
+
+  private final XMLInputFactory xmlFactory;
+  private final SMInputFactory smInputFactory;
+
+  public XmlFactories() {
+    xmlFactory = XMLInputFactory.newInstance();
+    if (xmlFactory instanceof WstxInputFactory) {
+      WstxInputFactory wstxInputfactory = (WstxInputFactory) xmlFactory;
+      wstxInputfactory.configureForLowMemUsage();
+      wstxInputfactory.getConfig().setUndeclaredEntityResolver(new UndeclaredEntitiesXMLResolver());
+    }
+    xmlFactory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+    xmlFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    xmlFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    smInputFactory = new SMInputFactory(xmlFactory);
+  }
+
+  public XMLInputFactory xmlInputFactory() {
+    return xmlFactory;
+  }
+
+  public SMInputFactory smInputFactory() {
+    return smInputFactory;
+  }
+
+  private static class UndeclaredEntitiesXMLResolver implements XMLResolver {
+    @Override
+    public Object resolveEntity(String arg0, String arg1, String fileName, String undeclaredEntity) throws XMLStreamException {
+      // avoid problems with XML docs containing undeclared entities.. return the entity under its raw form if not an unicode expression
+      if (undeclaredEntity.toLowerCase().startsWith("u") && undeclaredEntity.length() == 5) {
+        int unicodeCharHexValue = Integer.parseInt(undeclaredEntity.substring(1), 16);
+        if (Character.isDefined(unicodeCharHexValue)) {
+          undeclaredEntity = new String(new char[] {(char) unicodeCharHexValue});
+        }
+      }
+      return undeclaredEntity;
+    }
+  }
+}
@@ -2,17 +2,20 @@ package org.trimble.plugins.unittest.utils;
 
 
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.codehaus.stax2.typed.TypedXMLStreamException;
+import org.codehaus.stax2.typed.TypedXMLStreamReader;
 
 
 public class XmlParserHelper {
@@ -20,14 +23,36 @@ public class XmlParserHelper {
   private final File file;
   private final InputStreamReader reader;
   private final XMLStreamReader stream;
+  private final AttributeIndex attributes = new AttributeIndex();
 
   public XmlParserHelper(File file) throws FileNotFoundException, XMLStreamException, UnsupportedEncodingException {
+    this(file, new XmlFactories());
+  }
+
+  public XmlParserHelper(File file, XmlFactories factories) throws FileNotFoundException, XMLStreamException, UnsupportedEncodingException {
+    this(file, factories, null);
+  }
+
+  /**
+   * @param digest digests the report as it is read, null to not digest it
+   */
+  public XmlParserHelper(File file, XmlFactories factories, ContentDigest digest)
+    throws FileNotFoundException, XMLStreamException, UnsupportedEncodingException {
       this.file = file;
-      this.reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
-      XMLInputFactory xmlFactory = XMLInputFactory.newInstance();
-      this.stream = xmlFactory.createXMLStreamReader(reader);
+      this.reader = new InputStreamReader(open(file, digest), StandardCharsets.UTF_8);
+      this.stream = factories.xmlInputFactory().createXMLStreamReader(reader);
   }
   
+  private static InputStream open(File file, ContentDigest digest) throws FileNotFoundException, XMLStreamException {
+    try {
+      return ReportStreams.open(file, digest);
+    } catch (FileNotFoundException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new XMLStreamException(e);
+    }
+  }
+
   public boolean isAttributePresent(String name) {
     return getAttribute(name) != null;
   }  
@@ -44,6 +69,7 @@ public class XmlParserHelper {
     try {
       while (stream.hasNext()) {
         if (stream.next() == XMLStreamConstants.START_ELEMENT) {
+          attributes.index(stream);
           return stream.getLocalName();
         }
       }
@@ -62,8 +88,21 @@ public class XmlParserHelper {
   }
 
   public int getRequiredIntAttribute(String name) throws XMLStreamException {
-    String value = getRequiredAttribute(name);
+    int index = attributes.find(stream, name);
+    if (index < 0) {
+      throw new XMLStreamException("Missing attribute \"" + name + "\" in element <" + stream.getLocalName() + ">");
+    }
+
+    if (stream instanceof TypedXMLStreamReader) {
+      // decoded from the parser buffer, no String is built for the value
+      try {
+        return ((TypedXMLStreamReader) stream).getAttributeAsInt(index);
+      } catch (TypedXMLStreamException e) {
+        throw new XMLStreamException("Expected an integer instead of \"" + e.getLexical() + "\" for the attribute \"" + name + "\"");
+      }
+    }
 
+    String value = stream.getAttributeValue(index);
     try {
       return Integer.parseInt(value);
     } catch (NumberFormatException e) {
@@ -80,14 +119,13 @@ public class XmlParserHelper {
     return value;
   }
 
+  /**
+   * Returns the value of an attribute of the element reached by the last
+   * {@link #nextTag()} call, null if the element has no such attribute
+   */
   public String getAttribute(String name) {
-    for (int i = 0; i < stream.getAttributeCount(); i++) {
-      if (name.equals(stream.getAttributeLocalName(i))) {
-        return stream.getAttributeValue(i);
-      }
-    }
-
-    return null;
+    int index = attributes.find(stream, name);
+    return index < 0 ? null : stream.getAttributeValue(index);
   }
 
   public Exception parseError(String message) {
@@ -104,8 +142,76 @@ public class XmlParserHelper {
     }
   }
 
+  /**
+   * Returns the underlying stream, callers moving it to another element
+   * should go through {@link #nextTag()} before reading attributes again
+   */
   public XMLStreamReader stream() {
     return stream;
   }
 
+  /**
+   * Open addressing hash of the attribute names of the current start element
+   * to their index in the stream. Built once per element, the tables are
+   * reused between elements so lookups of present attributes neither scan
+   * nor allocate. A stream moved through {@link XmlParserHelper#stream()} to
+   * an element with as many attributes is not noticed, so hits are checked
+   * against the stream and misses are confirmed by a scan.
+   */
+  private static final class AttributeIndex {
+    private String[] names = new String[32];
+    private int[] indexes = new int[32];
+    private int mask = 31;
+    private int count = 0;
+
+    void index(XMLStreamReader stream) {
+      Arrays.fill(names, null);
+      count = stream.getAttributeCount();
+      if (count * 2 > names.length) {
+        int size = Integer.highestOneBit(count * 4);
+        names = new String[size];
+        indexes = new int[size];
+        mask = size - 1;
+      }
+      for (int i = 0; i < count; i++) {
+        String name = stream.getAttributeLocalName(i);
+        int slot = name.hashCode() & mask;
+        while (names[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        names[slot] = name;
+        indexes[slot] = i;
+      }
+    }
+
+    int find(XMLStreamReader stream, String name) {
+      if (count != stream.getAttributeCount()) {
+        // the stream was moved through stream() since the last nextTag()
+        index(stream);
+      }
+      int slot = name.hashCode() & mask;
+      String candidate;
+      while ((candidate = names[slot]) != null) {
+        if (candidate.equals(name)) {
+          int index = indexes[slot];
+          if (name.equals(stream.getAttributeLocalName(index))) {
+            return index;
+          }
+          return scan(stream, name);
+        }
+        slot = (slot + 1) & mask;
+      }
+      return scan(stream, name);
+    }
+
+    private static int scan(XMLStreamReader stream, String name) {
+      for (int i = 0; i < stream.getAttributeCount(); i++) {
+        if (name.equals(stream.getAttributeLocalName(i))) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
 }
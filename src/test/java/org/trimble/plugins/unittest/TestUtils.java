@@ -1,9 +1,15 @@
 package org.trimble.plugins.unittest;
 
 
+import com.github.luben.zstd.ZstdOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
 
 public class TestUtils {
 
@@ -21,4 +27,19 @@ public class TestUtils {
 
     return resourceAsFile;
   }
+
+  /**
+   * Writes a gzip ("gz") or zstd ("zst") compressed copy of the file
+   */
+  public static File compress(File source, File directory, String extension) throws IOException {
+    File target = new File(directory, source.getName() + "." + extension);
+    OutputStream output = new FileOutputStream(target);
+    output = "gz".equals(extension) ? new GZIPOutputStream(output) : new ZstdOutputStream(output);
+    try {
+      Files.copy(source.toPath(), output);
+    } finally {
+      output.close();
+    }
+    return target;
+  }
 }
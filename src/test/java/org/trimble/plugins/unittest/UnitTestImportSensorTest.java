@@ -0,0 +1,154 @@
+package org.trimble.plugins.unittest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Metric;
+import org.trimble.plugins.unittest.parsers.XunitReportParser;
+
+public class UnitTestImportSensorTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  String reportsDir = "/org/sonar/plugins/reports-project";
+
+  String reportPaths = "xunit-reports/xunit-result-2.xml,"
+    + "xunit-reports/xunit-result-SAMPLE.xml,"
+    + "xunit-reports/xunit-result-skippedonly.xml,"
+    + "xunit-reports/nested_testsuites.xml,"
+    + "nunit-reports/ConsoleApplicationCSharp.Test.unittest.report.xml";
+
+  private SensorContextTester execute(int workers) {
+    File baseDir = TestUtils.loadResource(reportsDir);
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    context.fileSystem().setWorkDir(temp.getRoot());
+    context.settings().setProperty(UnitTestImportSensor.REPORT_PATH_KEY, reportPaths);
+    context.settings().setProperty(UnitTestImportSensor.PARALLEL_WORKERS_KEY, workers);
+
+    new UnitTestImportSensor(context.settings()).execute(context);
+    return context;
+  }
+
+  private <T extends java.io.Serializable> T measure(SensorContextTester context, Metric<T> metric) {
+    return context.<T>measure(context.module().key(), metric).value();
+  }
+
+  @Test
+  public void sequentialImportShouldSaveMeasuresOnModule() {
+    SensorContextTester context = execute(1);
+
+    assertEquals(13, (int) measure(context, CoreMetrics.TESTS));
+    assertEquals(3, (int) measure(context, CoreMetrics.TEST_FAILURES));
+    assertEquals(0, (int) measure(context, CoreMetrics.TEST_ERRORS));
+  }
+
+  @Test
+  public void importStatisticsShouldBeWrittenToWorkDir() throws IOException {
+    execute(2);
+
+    File file = new File(temp.getRoot(), ImportStatistics.STATISTICS_FILE);
+    String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    assertTrue(json.contains("xunit-result-SAMPLE.xml\", \"format\": \"XUNIT\", \"parser\": \"xunit-"));
+    assertTrue(json.contains("ConsoleApplicationCSharp.Test.unittest.report.xml\", \"format\": \"NUNIT\", \"parser\": \"nunit-stream\", \"parsed\": true"));
+    assertTrue(json.contains("\"discoveryMicros\": "));
+  }
+
+  @Test
+  public void nunitReportsShouldGoThroughTheConfiguredStylesheet() throws IOException {
+    File stylesheet = temp.newFile("nunit-as-failures.xsl");
+    Files.write(stylesheet.toPath(), ("<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+      + "<xsl:template match=\"/\"><testsuite name=\"nunit\"><xsl:for-each select=\"//test-case\">"
+      + "<testcase name=\"{@name}\"><failure message=\"converted\"/></testcase>"
+      + "</xsl:for-each></testsuite></xsl:template></xsl:stylesheet>").getBytes(StandardCharsets.UTF_8));
+    File baseDir = TestUtils.loadResource(reportsDir);
+    String nunitReport = "nunit-reports/ConsoleApplicationCSharp.Test.unittest.report.xml";
+
+    SensorContextTester transformed = SensorContextTester.create(baseDir);
+    transformed.fileSystem().setWorkDir(temp.getRoot());
+    transformed.settings().setProperty(UnitTestImportSensor.REPORT_PATH_KEY, nunitReport);
+    transformed.settings().setProperty(XunitReportParser.XSLT_URL_KEY, stylesheet.toURI().toString());
+    new UnitTestImportSensor(transformed.settings()).execute(transformed);
+
+    assertEquals(2, (int) measure(transformed, CoreMetrics.TESTS));
+    assertEquals(2, (int) measure(transformed, CoreMetrics.TEST_FAILURES));
+
+  }
+
+  @Test
+  public void writtenSummariesShouldImportAsTheReports() throws IOException {
+    File summaries = temp.newFolder("summaries");
+    File baseDir = TestUtils.loadResource(reportsDir);
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    context.fileSystem().setWorkDir(temp.getRoot());
+    context.settings().setProperty(UnitTestImportSensor.REPORT_PATH_KEY, reportPaths);
+    context.settings().setProperty(UnitTestImportSensor.SUMMARY_DIR_KEY, summaries.getAbsolutePath());
+    new UnitTestImportSensor(context.settings()).execute(context);
+    assertEquals(5, summaries.list().length);
+
+    SensorContextTester fromSummaries = SensorContextTester.create(baseDir);
+    fromSummaries.fileSystem().setWorkDir(temp.getRoot());
+    fromSummaries.settings().setProperty(UnitTestImportSensor.REPORT_PATH_KEY, summaries.getAbsolutePath() + "/*.utsum");
+    new UnitTestImportSensor(fromSummaries.settings()).execute(fromSummaries);
+
+    assertEquals(measure(context, CoreMetrics.TESTS), measure(fromSummaries, CoreMetrics.TESTS));
+    assertEquals(measure(context, CoreMetrics.TEST_FAILURES), measure(fromSummaries, CoreMetrics.TEST_FAILURES));
+    assertEquals(measure(context, CoreMetrics.SKIPPED_TESTS), measure(fromSummaries, CoreMetrics.SKIPPED_TESTS));
+    assertEquals(measure(context, CoreMetrics.TEST_EXECUTION_TIME), measure(fromSummaries, CoreMetrics.TEST_EXECUTION_TIME));
+  }
+
+  @Test
+  public void testFileMeasuresShouldBeSavedOnResolvedFiles() {
+    File baseDir = TestUtils.loadResource(reportsDir);
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    context.fileSystem().setWorkDir(temp.getRoot());
+    DefaultInputFile byFilename = addInputFile(context, baseDir, "test/file.cpp");
+    DefaultInputFile byClassname = addInputFile(context, baseDir, "src/Component1Test.cc");
+    DefaultInputFile byPackage = addInputFile(context, baseDir, "src/test/fs/FileSystemTest.cpp");
+    addInputFile(context, baseDir, "src/other/fs/FileSystemTest.cpp");
+    context.settings().setProperty(UnitTestImportSensor.REPORT_PATH_KEY, "xunit-reports/xunit-result-SAMPLE_with_fileName.xml,"
+      + "xunit-reports/xunit-result-2.xml,xunit-reports/nested_testsuites.xml");
+    context.settings().setProperty(UnitTestImportSensor.TEST_FILE_MEASURES_KEY, true);
+
+    new UnitTestImportSensor(context.settings()).execute(context);
+
+    assertEquals(3, (int) context.<Integer>measure(byFilename.key(), CoreMetrics.TESTS).value());
+    assertEquals(5, (int) context.<Integer>measure(byClassname.key(), CoreMetrics.TESTS).value());
+    assertEquals(2, (int) context.<Integer>measure(byClassname.key(), CoreMetrics.TEST_FAILURES).value());
+    assertEquals(1, (int) context.<Integer>measure(byClassname.key(), CoreMetrics.SKIPPED_TESTS).value());
+    assertEquals(170L, (long) context.<Long>measure(byClassname.key(), CoreMetrics.TEST_EXECUTION_TIME).value());
+    assertEquals(1, (int) context.<Integer>measure(byPackage.key(), CoreMetrics.TESTS).value());
+    assertEquals(10, (int) measure(context, CoreMetrics.TESTS));
+  }
+
+  private static DefaultInputFile addInputFile(SensorContextTester context, File baseDir, String relativePath) {
+    DefaultInputFile inputFile = new DefaultInputFile(context.module().key(), relativePath)
+      .setModuleBaseDir(baseDir.toPath());
+    context.fileSystem().add(inputFile);
+    return inputFile;
+  }
+
+  @Test
+  public void parallelImportShouldSaveSameMeasuresAsSequential() {
+    SensorContextTester sequential = execute(1);
+    SensorContextTester parallel = execute(4);
+
+    assertEquals(measure(sequential, CoreMetrics.TESTS), measure(parallel, CoreMetrics.TESTS));
+    assertEquals(measure(sequential, CoreMetrics.TEST_FAILURES), measure(parallel, CoreMetrics.TEST_FAILURES));
+    assertEquals(measure(sequential, CoreMetrics.TEST_ERRORS), measure(parallel, CoreMetrics.TEST_ERRORS));
+    assertEquals(measure(sequential, CoreMetrics.SKIPPED_TESTS), measure(parallel, CoreMetrics.SKIPPED_TESTS));
+    assertEquals(measure(sequential, CoreMetrics.TEST_EXECUTION_TIME), measure(parallel, CoreMetrics.TEST_EXECUTION_TIME));
+    assertEquals(measure(sequential, CoreMetrics.TEST_SUCCESS_DENSITY), measure(parallel, CoreMetrics.TEST_SUCCESS_DENSITY));
+  }
+}
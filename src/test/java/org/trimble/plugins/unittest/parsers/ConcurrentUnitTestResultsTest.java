@@ -0,0 +1,49 @@
+package org.trimble.plugins.unittest.parsers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class ConcurrentUnitTestResultsTest {
+
+  @Test
+  public void concurrentMergesShouldSumUp() throws Exception {
+    final ConcurrentUnitTestResults results = new ConcurrentUnitTestResults();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Void>> tasks = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        tasks.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            for (int j = 0; j < 1000; j++) {
+              UnitTestResults report = new UnitTestResults();
+              report.add(3, 1, 1, 1, 0, 1500L);
+              results.merge(report);
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> task : tasks) {
+        task.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    UnitTestResults snapshot = results.snapshot();
+    assertEquals(24000, snapshot.getTests());
+    assertEquals(8000, (int) snapshot.getSkippedTests());
+    assertEquals(8000, snapshot.getTestFailures());
+    assertEquals(0, snapshot.getTestErrors());
+    assertEquals(12000000L, (long) snapshot.getTestTime());
+  }
+}
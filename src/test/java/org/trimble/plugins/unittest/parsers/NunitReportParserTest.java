@@ -3,11 +3,17 @@ package org.trimble.plugins.unittest.parsers;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.trimble.plugins.unittest.TestUtils;
+import org.trimble.plugins.unittest.utils.XmlFactories;
 
 public class NunitReportParserTest {
 
@@ -15,6 +21,9 @@ public class NunitReportParserTest {
 
   String pathPrefix = "/org/sonar/plugins/reports-project/nunit-reports/";
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void testParse() throws javax.xml.stream.XMLStreamException {
 
@@ -31,6 +40,59 @@ public class NunitReportParserTest {
     }
   }
 
+  @Test
+  public void testCasesShouldBeStreamedWithTheirDuration() {
+    File report = TestUtils.loadResource(pathPrefix + "ConsoleApplicationCSharp.Test.unittest.report.xml");
+    UnitTestResults results = new UnitTestResults();
+    assertEquals(true, new NUnitTestResultsParser().parse(report, results));
+    assertEquals(2, results.getTests());
+    assertEquals(0, results.getTestFailures());
+    // "0,009" and "0,041" seconds, written with a comma by a Finnish culture
+    assertEquals(50L, (long) results.getTestTime());
+  }
+
+  @Test
+  public void gzipCompressedReportsShouldBeStreamed() throws IOException {
+    File report = TestUtils.compress(TestUtils.loadResource(pathPrefix + "ConsoleApplicationCSharp.Test.unittest.report.xml"),
+      temp.getRoot(), "gz");
+    UnitTestResults results = new UnitTestResults();
+    assertEquals(true, new NUnitTestResultsParser().parse(report, results));
+    assertEquals(2, results.getTests());
+    assertEquals(50L, (long) results.getTestTime());
+  }
+
+  @Test
+  public void rootCountersModeShouldReadTotalsOnly() {
+    File report = TestUtils.loadResource(pathPrefix + "ConsoleApplicationCSharp.Test.unittest.report.xml");
+    UnitTestResults results = new UnitTestResults();
+    assertEquals(true, new NUnitTestResultsParser(new XmlFactories(), true).parse(report, results));
+    assertEquals(2, results.getTests());
+    assertEquals(0L, (long) results.getTestTime());
+  }
+
+  @Test
+  public void bothModesShouldCountInconclusiveTestCasesAlike() throws IOException {
+    File report = temp.newFile();
+    Files.write(report.toPath(), ("<test-results total=\"4\" errors=\"0\" failures=\"1\" not-run=\"1\""
+      + " inconclusive=\"1\" ignored=\"1\" skipped=\"0\"><test-suite><results>"
+      + "<test-case name=\"a\" result=\"Success\" time=\"0.1\"/>"
+      + "<test-case name=\"b\" result=\"Failure\" time=\"0.1\"/>"
+      + "<test-case name=\"c\" result=\"Ignored\"/>"
+      + "<test-case name=\"d\" result=\"Inconclusive\" time=\"0.1\"/>"
+      + "</results></test-suite></test-results>").getBytes(StandardCharsets.UTF_8));
+    UnitTestResults streamed = new UnitTestResults();
+    UnitTestResults counted = new UnitTestResults();
+
+    assertEquals(true, new NUnitTestResultsParser().parse(report, streamed));
+    assertEquals(true, new NUnitTestResultsParser(new XmlFactories(), true).parse(report, counted));
+
+    assertEquals(3, streamed.getTests());
+    assertEquals(counted.getTests(), streamed.getTests());
+    assertEquals(counted.getSkippedTests(), streamed.getSkippedTests());
+    assertEquals(counted.getTestFailures(), streamed.getTestFailures());
+    assertEquals(counted.getTestErrors(), streamed.getTestErrors());
+  }
+
   @Test
   public void shouldThrowWhenGivenInvalidTime() {
       parserHandler = new NUnitTestResultsParser();
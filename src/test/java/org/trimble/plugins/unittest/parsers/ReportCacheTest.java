@@ -0,0 +1,96 @@
+package org.trimble.plugins.unittest.parsers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReportCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File report(String name, String content) throws IOException {
+    File report = new File(temp.getRoot(), name);
+    Files.write(report.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return report;
+  }
+
+  private static UnitTestResults results(int tests, int failures, long duration) {
+    UnitTestResults results = new UnitTestResults();
+    results.add(tests, tests - failures, 0, failures, 0, duration);
+    return results;
+  }
+
+  @Test
+  public void unchangedReportShouldBeServedAfterReload() throws IOException {
+    File cacheFile = new File(temp.getRoot(), "cache.tsv");
+    File report = report("a.xml", "<testsuite/>");
+
+    ReportCache cache = new ReportCache(cacheFile, "xslt=", 10);
+    assertNull(cache.lookup(report));
+    cache.store(report, results(4, 1, 12L));
+    cache.save();
+
+    cache = new ReportCache(cacheFile, "xslt=", 10);
+    cache.load();
+    UnitTestResults cached = cache.lookup(report);
+    assertEquals(4, cached.getTests());
+    assertEquals(1, cached.getTestFailures());
+    assertEquals(12L, (long) cached.getTestTime());
+  }
+
+  @Test
+  public void touchedReportWithSameContentShouldStillHit() throws IOException {
+    File report = report("a.xml", "<testsuite/>");
+    ReportCache cache = new ReportCache(new File(temp.getRoot(), "cache.tsv"), "xslt=", 10);
+    cache.store(report, results(2, 0, 0L));
+
+    report.setLastModified(report.lastModified() - 10000);
+    assertEquals(2, cache.lookup(report).getTests());
+
+    report("a.xml", "<testsuite>");
+    assertNull(cache.lookup(report));
+  }
+
+  @Test
+  public void otherConfigurationShouldDiscardCache() throws IOException {
+    File cacheFile = new File(temp.getRoot(), "cache.tsv");
+    File report = report("a.xml", "<testsuite/>");
+    ReportCache cache = new ReportCache(cacheFile, "xslt=", 10);
+    cache.store(report, results(2, 0, 0L));
+    cache.save();
+
+    cache = new ReportCache(cacheFile, "xslt=boost.xsl", 10);
+    cache.load();
+    assertNull(cache.lookup(report));
+  }
+
+  @Test
+  public void saveShouldEvictDeletedAndLeastRecentlyUsedEntries() throws IOException {
+    File a = report("a.xml", "a");
+    File b = report("b.xml", "b");
+    File c = report("c.xml", "c");
+    File d = report("d.xml", "d");
+    ReportCache cache = new ReportCache(new File(temp.getRoot(), "cache.tsv"), "xslt=", 2);
+    cache.store(a, results(1, 0, 0L));
+    cache.store(b, results(1, 0, 0L));
+    cache.store(c, results(1, 0, 0L));
+    cache.store(d, results(1, 0, 0L));
+    cache.lookup(a);
+    d.delete();
+
+    cache.save();
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.lookup(a).getTests());
+    assertNull(cache.lookup(b));
+  }
+}
@@ -0,0 +1,60 @@
+package org.trimble.plugins.unittest.parsers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.trimble.plugins.unittest.TestUtils;
+
+public class ReportFormatTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  String xunitPrefix = "/org/sonar/plugins/reports-project/xunit-reports/";
+  String nunitPrefix = "/org/sonar/plugins/reports-project/nunit-reports/";
+
+  private static ReportFormat detect(String head) {
+    byte[] bytes = head.getBytes(StandardCharsets.UTF_8);
+    return ReportFormat.detect(bytes, bytes.length);
+  }
+
+  @Test
+  public void shouldDetectReportsByRootElement() {
+    assertEquals(ReportFormat.XUNIT, ReportFormat.detect(TestUtils.loadResource(xunitPrefix + "xunit-result-2.xml")));
+    assertEquals(ReportFormat.XUNIT, ReportFormat.detect(TestUtils.loadResource(xunitPrefix + "xunit-result-SAMPLE.xml")));
+    assertEquals(ReportFormat.NUNIT, ReportFormat.detect(TestUtils.loadResource(nunitPrefix + "ConsoleApplicationCSharp.Test.unittest.report.xml")));
+    assertEquals(ReportFormat.UNKNOWN, ReportFormat.detect(TestUtils.loadResource(xunitPrefix + "cppunit-report.xml")));
+    assertEquals(ReportFormat.UNKNOWN, ReportFormat.detect(TestUtils.loadResource(xunitPrefix + "xunit-result-empty.xml")));
+  }
+
+  @Test
+  public void shouldDetectCompressedReportsFromTheirContent() throws IOException {
+    File nunit = TestUtils.loadResource(nunitPrefix + "ConsoleApplicationCSharp.Test.unittest.report.xml");
+    assertEquals(ReportFormat.NUNIT, ReportFormat.detect(TestUtils.compress(nunit, temp.getRoot(), "gz")));
+    assertEquals(ReportFormat.NUNIT, ReportFormat.detect(TestUtils.compress(nunit, temp.getRoot(), "zst")));
+  }
+
+  @Test
+  public void shouldSkipPrologAndHonorNamespaces() {
+    assertEquals(ReportFormat.NUNIT, detect("<?xml version=\"1.0\"?><!-- <testsuite> --><test-run id=\"2\">"));
+    assertEquals(ReportFormat.XUNIT, detect("<!DOCTYPE x [ <!ENTITY a \"b\"> ]>\n<j:testsuites xmlns:j=\"urn:junit\">"));
+    assertEquals(ReportFormat.NUNIT, detect("<results xmlns=\"http://nunit.org/schema\">"));
+    assertEquals(ReportFormat.UNKNOWN, detect("<?xml version=\"1.0\"?><testsui"));
+  }
+
+  @Test
+  public void shouldHonorUtf16ByteOrderMark() {
+    byte[] text = "<testsuite name=\"s\">".getBytes(StandardCharsets.UTF_16LE);
+    byte[] head = new byte[text.length + 2];
+    head[0] = (byte) 0xFF;
+    head[1] = (byte) 0xFE;
+    System.arraycopy(text, 0, head, 2, text.length);
+    assertEquals(ReportFormat.XUNIT, ReportFormat.detect(head, head.length));
+  }
+}
@@ -0,0 +1,348 @@
+package org.trimble.plugins.unittest.parsers;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Streams synthetic unit test reports of any size straight to disk and
+ * computes, while writing, the results the importer is expected to find in
+ * them. Meant for scale tests and benchmarks of the parsers.
+ *
+ * Outcomes are drawn from a seeded random generator, so a given
+ * configuration always produces the same report.
+ */
+public class ReportGenerator {
+
+  public enum Format {
+    /** JUnit style report, failures, errors and skipped tests as child elements */
+    XUNIT,
+    /** googletest output, skipped tests are marked with status="notrun" */
+    GOOGLETEST,
+    /** NUnit 2 test-results document */
+    NUNIT2,
+    /** NUnit 3 test-run document */
+    NUNIT3
+  }
+
+  private enum Outcome {
+    PASSED, FAILED, ERROR, SKIPPED
+  }
+
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  private static final int MAX_TIME_MILLIS = 1000;
+
+  private long testCases = 1000;
+  private int testCasesPerSuite = 100;
+  private int nestingDepth = 1;
+  private double failureRatio = 0.1;
+  private double errorRatio = 0.0;
+  private double skippedRatio = 0.0;
+  private int stackTraceLines = 10;
+  private long seed = 42L;
+
+  public ReportGenerator testCases(long testCases) {
+    this.testCases = testCases;
+    return this;
+  }
+
+  public ReportGenerator testCasesPerSuite(int testCasesPerSuite) {
+    this.testCasesPerSuite = testCasesPerSuite;
+    return this;
+  }
+
+  /**
+   * @param nestingDepth number of nested suite levels around the test cases
+   */
+  public ReportGenerator nestingDepth(int nestingDepth) {
+    this.nestingDepth = nestingDepth;
+    return this;
+  }
+
+  public ReportGenerator failureRatio(double failureRatio) {
+    this.failureRatio = failureRatio;
+    return this;
+  }
+
+  public ReportGenerator errorRatio(double errorRatio) {
+    this.errorRatio = errorRatio;
+    return this;
+  }
+
+  public ReportGenerator skippedRatio(double skippedRatio) {
+    this.skippedRatio = skippedRatio;
+    return this;
+  }
+
+  /**
+   * @param stackTraceLines number of frames in the stack trace of every
+   * failure and error
+   */
+  public ReportGenerator stackTraceLines(int stackTraceLines) {
+    this.stackTraceLines = stackTraceLines;
+    return this;
+  }
+
+  public ReportGenerator seed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  /**
+   * Writes a report in the given format
+   *
+   * @return the results the importer is expected to collect from the report
+   */
+  public UnitTestResults write(Format format, File report) throws IOException {
+    Generation generation = new Generation(format);
+    try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(report.toPath()),
+      StandardCharsets.UTF_8), BUFFER_SIZE)) {
+      generation.write(out);
+    }
+    return generation.expected();
+  }
+
+  private class Generation {
+    private final Format format;
+    private final Random random = new Random(seed);
+    private final UnitTestResults expected = new UnitTestResults();
+    private long written = 0;
+    private long nunitMillis = 0;
+
+    Generation(Format format) {
+      this.format = format;
+    }
+
+    void write(Writer out) throws IOException {
+      boolean nunit = format == Format.NUNIT2 || format == Format.NUNIT3;
+      out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      if (nunit) {
+        // the root element carries the totals: they are counted first by replaying the random sequence
+        long[] counts = countOutcomes();
+        writeNUnitRoot(out, counts);
+        writeNUnitSuites(out, 1);
+        out.write(format == Format.NUNIT2 ? "</test-results>\n" : "</test-run>\n");
+        expectNUnitTotals(counts, nunitMillis);
+      } else {
+        out.write("<testsuites name=\"AllTests\">\n");
+        while (written < testCases) {
+          writeSuite(out, 1);
+        }
+        out.write("</testsuites>\n");
+      }
+    }
+
+    private long[] countOutcomes() {
+      Random counting = new Random(seed);
+      long[] counts = new long[Outcome.values().length];
+      for (long i = 0; i < testCases; i++) {
+        counting.nextInt(MAX_TIME_MILLIS);
+        counts[nextOutcome(counting).ordinal()]++;
+      }
+      return counts;
+    }
+
+    private void writeSuite(Writer out, int level) throws IOException {
+      String indent = indent(level);
+      out.write(indent + "<testsuite name=\"Suite" + written + "_" + level + "\">\n");
+      if (level < nestingDepth) {
+        writeSuite(out, level + 1);
+      } else {
+        for (int i = 0; i < testCasesPerSuite && written < testCases; i++) {
+          writeTestCase(out, indent + "  ");
+        }
+      }
+      out.write(indent + "</testsuite>\n");
+    }
+
+    private void writeTestCase(Writer out, String indent) throws IOException {
+      long id = written++;
+      int millis = random.nextInt(MAX_TIME_MILLIS);
+      Outcome outcome = nextOutcome(random);
+      String time = seconds(millis);
+      String classname = "Class" + (id % 1000);
+      if (format == Format.GOOGLETEST) {
+        String status = outcome == Outcome.SKIPPED ? "notrun" : "run";
+        out.write(indent + "<testcase name=\"test" + id + "\" status=\"" + status + "\" time=\"" + time
+          + "\" classname=\"" + classname + "\"");
+      } else {
+        out.write(indent + "<testcase name=\"test" + id + "\" time=\"" + time + "\" classname=\"" + classname + "\"");
+      }
+
+      switch (outcome) {
+        case FAILED:
+          out.write(">\n" + indent + "  <failure message=\"expected true\"><![CDATA[");
+          writeStackTrace(out, classname, id);
+          out.write("]]></failure>\n" + indent + "</testcase>\n");
+          expected.add(1, 0, 0, 1, 0, millis);
+          break;
+        case ERROR:
+          out.write(">\n" + indent + "  <error message=\"unexpected exception\"><![CDATA[");
+          writeStackTrace(out, classname, id);
+          out.write("]]></error>\n" + indent + "</testcase>\n");
+          expected.add(1, 0, 0, 0, 1, millis);
+          break;
+        case SKIPPED:
+          if (format == Format.GOOGLETEST) {
+            out.write("/>\n");
+            // the importer counts googletest "notrun" tests as failures
+            expected.add(1, 0, 0, 1, 0, millis);
+          } else {
+            out.write(">\n" + indent + "  <skipped/>\n" + indent + "</testcase>\n");
+            expected.add(1, 0, 1, 0, 0, millis);
+          }
+          break;
+        default:
+          out.write("/>\n");
+          expected.add(1, 1, 0, 0, 0, millis);
+      }
+    }
+
+    private void writeNUnitRoot(Writer out, long[] counts) throws IOException {
+      long total = testCases;
+      long failures = counts[Outcome.FAILED.ordinal()];
+      long errorCount = counts[Outcome.ERROR.ordinal()];
+      long skippedCount = counts[Outcome.SKIPPED.ordinal()];
+      long passedCount = counts[Outcome.PASSED.ordinal()];
+      if (format == Format.NUNIT2) {
+        out.write("<test-results name=\"Generated.Tests.dll\" total=\"" + total + "\" errors=\"" + errorCount
+          + "\" failures=\"" + failures + "\" not-run=\"" + skippedCount + "\" inconclusive=\"0\" ignored=\""
+          + skippedCount + "\" skipped=\"0\" invalid=\"0\" date=\"2016-07-10\" time=\"13:42:39\">\n");
+        out.write("  <environment nunit-version=\"2.6.4\" />\n");
+      } else {
+        // NUnit 3 reports errors as failures with label="Error"
+        out.write("<test-run id=\"2\" testcasecount=\"" + total + "\" result=\"Failed\" total=\"" + total
+          + "\" passed=\"" + passedCount + "\" failed=\"" + (failures + errorCount) + "\" inconclusive=\"0\" skipped=\""
+          + skippedCount + "\" asserts=\"" + total + "\" engine-version=\"3.7.0\">\n");
+      }
+    }
+
+    private void writeNUnitSuites(Writer out, int level) throws IOException {
+      while (written < testCases) {
+        writeNUnitSuite(out, level);
+      }
+    }
+
+    private void writeNUnitSuite(Writer out, int level) throws IOException {
+      String indent = indent(level);
+      String type = level == nestingDepth ? "TestFixture" : "TestSuite";
+      out.write(indent + "<test-suite type=\"" + type + "\" name=\"Suite" + written + "_" + level + "\">\n");
+      if (format == Format.NUNIT2) {
+        out.write(indent + "  <results>\n");
+      }
+      if (level < nestingDepth) {
+        writeNUnitSuite(out, level + 1);
+      } else {
+        for (int i = 0; i < testCasesPerSuite && written < testCases; i++) {
+          writeNUnitTestCase(out, indent + "    ");
+        }
+      }
+      if (format == Format.NUNIT2) {
+        out.write(indent + "  </results>\n");
+      }
+      out.write(indent + "</test-suite>\n");
+    }
+
+    private void writeNUnitTestCase(Writer out, String indent) throws IOException {
+      long id = written++;
+      int millis = random.nextInt(MAX_TIME_MILLIS);
+      Outcome outcome = nextOutcome(random);
+      String classname = "Generated.Class" + (id % 1000);
+      nunitMillis += millis;
+      if (format == Format.NUNIT2) {
+        String result = nunit2Result(outcome);
+        out.write(indent + "<test-case name=\"" + classname + ".Test" + id + "\" executed=\""
+          + (outcome == Outcome.SKIPPED ? "False" : "True") + "\" result=\"" + result + "\" success=\""
+          + (outcome == Outcome.PASSED ? "True" : "False") + "\" time=\"" + seconds(millis) + "\" asserts=\"1\"");
+      } else {
+        out.write(indent + "<test-case id=\"" + id + "\" name=\"Test" + id + "\" fullname=\"" + classname + ".Test" + id
+          + "\" classname=\"" + classname + "\" runstate=\"Runnable\" result=\"" + nunit3Result(outcome) + "\""
+          + (outcome == Outcome.ERROR ? " label=\"Error\"" : "") + " duration=\"" + seconds(millis) + "\" asserts=\"1\"");
+      }
+
+      if (outcome == Outcome.FAILED || outcome == Outcome.ERROR) {
+        out.write(">\n" + indent + "  <failure>\n" + indent + "    <message><![CDATA[expected true]]></message>\n"
+          + indent + "    <stack-trace><![CDATA[");
+        writeStackTrace(out, classname, id);
+        out.write("]]></stack-trace>\n" + indent + "  </failure>\n" + indent + "</test-case>\n");
+      } else {
+        out.write(" />\n");
+      }
+    }
+
+    /**
+     * The NUnit parser streams every test case, NUnit 3 errors being
+     * recognized from their label
+     */
+    private void expectNUnitTotals(long[] counts, long durationMillis) {
+      expected.add((int) testCases, (int) counts[Outcome.PASSED.ordinal()], (int) counts[Outcome.SKIPPED.ordinal()],
+        (int) counts[Outcome.FAILED.ordinal()], (int) counts[Outcome.ERROR.ordinal()], durationMillis);
+    }
+
+    private void writeStackTrace(Writer out, String classname, long id) throws IOException {
+      out.write("assertion failed in test" + id + "\n");
+      for (int i = 0; i < stackTraceLines; i++) {
+        out.write("    at com.example." + classname + ".method" + i + "(" + classname + ".java:" + (i + 10) + ")\n");
+      }
+    }
+
+    private Outcome nextOutcome(Random source) {
+      double draw = source.nextDouble();
+      if (draw < failureRatio) {
+        return Outcome.FAILED;
+      } else if (draw < failureRatio + errorRatio) {
+        return Outcome.ERROR;
+      } else if (draw < failureRatio + errorRatio + skippedRatio) {
+        return Outcome.SKIPPED;
+      }
+      return Outcome.PASSED;
+    }
+
+    UnitTestResults expected() {
+      return expected;
+    }
+  }
+
+  private static String nunit2Result(Outcome outcome) {
+    switch (outcome) {
+      case FAILED:
+        return "Failure";
+      case ERROR:
+        return "Error";
+      case SKIPPED:
+        return "Ignored";
+      default:
+        return "Success";
+    }
+  }
+
+  private static String nunit3Result(Outcome outcome) {
+    switch (outcome) {
+      case FAILED:
+      case ERROR:
+        return "Failed";
+      case SKIPPED:
+        return "Skipped";
+      default:
+        return "Passed";
+    }
+  }
+
+  private static String seconds(int millis) {
+    int fraction = millis % 1000;
+    return (millis / 1000) + (fraction < 10 ? ".00" : fraction < 100 ? ".0" : ".") + fraction;
+  }
+
+  private static String indent(int level) {
+    StringBuilder indent = new StringBuilder();
+    for (int i = 0; i < level; i++) {
+      indent.append("  ");
+    }
+    return indent.toString();
+  }
+}
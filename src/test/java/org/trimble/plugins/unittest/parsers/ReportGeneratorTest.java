@@ -0,0 +1,53 @@
+package org.trimble.plugins.unittest.parsers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.trimble.plugins.unittest.parsers.ReportGenerator.Format;
+
+public class ReportGeneratorTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private static void assertSameResults(UnitTestResults expected, UnitTestResults actual) {
+    assertEquals(expected.getTests(), actual.getTests());
+    assertEquals(expected.getSkippedTests(), actual.getSkippedTests());
+    assertEquals(expected.getTestFailures(), actual.getTestFailures());
+    assertEquals(expected.getTestErrors(), actual.getTestErrors());
+    assertEquals(expected.getTestTime(), actual.getTestTime());
+  }
+
+  private void assertParsedAsExpected(ReportGenerator generator, Format format, ReportParser parser) throws IOException {
+    File report = new File(temp.newFolder(), format + ".xml");
+    UnitTestResults expected = generator.write(format, report);
+    UnitTestResults actual = new UnitTestResults();
+
+    assertEquals(true, parser.parse(report, actual));
+    assertSameResults(expected, actual);
+  }
+
+  @Test
+  public void generatedXunitReportsShouldMatchExpectedResults() throws IOException {
+    ReportGenerator generator = new ReportGenerator().testCases(2500).testCasesPerSuite(70)
+      .failureRatio(0.1).errorRatio(0.05).skippedRatio(0.05).stackTraceLines(30);
+
+    assertParsedAsExpected(generator, Format.XUNIT, new XunitReportParser());
+    assertParsedAsExpected(generator, Format.GOOGLETEST, new XunitReportParser());
+    assertParsedAsExpected(generator.nestingDepth(4), Format.XUNIT, new XunitReportParser());
+  }
+
+  @Test
+  public void generatedNUnitReportsShouldMatchExpectedResults() throws IOException {
+    ReportGenerator generator = new ReportGenerator().testCases(1200).nestingDepth(3)
+      .failureRatio(0.2).errorRatio(0.1).skippedRatio(0.1);
+
+    assertParsedAsExpected(generator, Format.NUNIT2, new NUnitTestResultsParser());
+    assertParsedAsExpected(generator, Format.NUNIT3, new NUnitTestResultsParser());
+  }
+}
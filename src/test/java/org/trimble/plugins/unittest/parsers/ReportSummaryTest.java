@@ -0,0 +1,104 @@
+package org.trimble.plugins.unittest.parsers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.trimble.plugins.unittest.TestUtils;
+import org.trimble.plugins.unittest.utils.TestCaseStore;
+
+public class ReportSummaryTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private static UnitTestResults results(int passed, int skipped, int failures, int errors, long millis) {
+    UnitTestResults results = new UnitTestResults();
+    results.add(passed + skipped + failures + errors, passed, skipped, failures, errors, millis);
+    return results;
+  }
+
+  private static void assertSameResults(UnitTestResults expected, UnitTestResults actual) {
+    assertEquals(expected.getTests(), actual.getTests());
+    assertEquals(expected.passed, actual.passed);
+    assertEquals(expected.getSkippedTests(), actual.getSkippedTests());
+    assertEquals(expected.getTestFailures(), actual.getTestFailures());
+    assertEquals(expected.getTestErrors(), actual.getTestErrors());
+    assertEquals(expected.durationMillis, actual.durationMillis);
+  }
+
+  @Test
+  public void summariesShouldBeReadBackAsWritten() throws IOException {
+    Map<String, UnitTestResults> suites = new LinkedHashMap<>();
+    suites.put("Suite é", results(3, 1, 0, 0, 1500));
+    suites.put("Other", results(0, 0, 2, 1, 7));
+    UnitTestResults totals = results(3, 1, 2, 1, 1507);
+    File summary = temp.newFile("a" + ReportSummary.EXTENSION);
+
+    ReportSummary.write(summary, totals, suites);
+    ReportSummary read = ReportSummary.read(summary);
+
+    assertSameResults(totals, read.totals());
+    assertEquals(suites.keySet(), read.suites().keySet());
+    assertSameResults(suites.get("Other"), read.suites().get("Other"));
+    assertEquals(ReportFormat.SUMMARY, ReportFormat.detect(summary));
+
+    ReportSummary.write(summary, totals, null);
+    assertEquals(0, ReportSummary.read(summary).suites().size());
+    assertSameResults(totals, ReportSummary.read(TestUtils.compress(summary, temp.getRoot(), "gz")).totals());
+  }
+
+  @Test
+  public void summaryParserShouldRejectOtherVersionsAndTruncatedFiles() throws IOException {
+    File summary = temp.newFile();
+    ReportSummary.write(summary, results(1, 0, 0, 0, 1), null);
+    byte[] content = Files.readAllBytes(summary.toPath());
+    UnitTestResults results = new UnitTestResults();
+
+    assertEquals(true, new ReportSummaryParser().parse(summary, results));
+    assertEquals(1, results.getTests());
+
+    content[5] = 2;
+    Files.write(summary.toPath(), content);
+    assertEquals(false, new ReportSummaryParser().parse(summary, results));
+    Files.write(summary.toPath(), new byte[] {'U', 'T', 'S', 'M', 0, 1});
+    assertEquals(false, new ReportSummaryParser().parse(summary, results));
+    assertEquals(1, results.getTests());
+  }
+
+  @Test
+  public void longSuiteNamesShouldBeTruncatedOnCharacterBoundaries() {
+    // two ASCII characters put the limit in the middle of an e acute
+    StringBuilder name = new StringBuilder("ab");
+    while (name.length() < 0x8001) {
+      name.append('\u00e9');
+    }
+
+    byte[] bytes = ReportSummary.nameBytes(name.toString());
+
+    assertEquals(0xFFFF - 1, bytes.length);
+    assertEquals(name.substring(0, 0x8000), new String(bytes, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void suitesShouldBeRolledUpFromStoredTestCases() {
+    TestCaseStore testCases = new TestCaseStore();
+    testCases.add("a", 3, TestCaseStore.STATUS_OK, null, null, null, null, "S1", null);
+    testCases.add("b", 5, TestCaseStore.STATUS_FAILURE, "", "m", null, null, "S1", null);
+    testCases.add("c", 1, TestCaseStore.STATUS_SKIPPED, null, null, null, null, "S2", null);
+    testCases.add("d", 2, TestCaseStore.STATUS_NOT_RUN, null, null, null, null, "S2", null);
+
+    Map<String, UnitTestResults> suites = ReportSummary.suites(testCases);
+
+    assertSameResults(results(1, 0, 1, 0, 8), suites.get("S1"));
+    assertSameResults(results(0, 1, 1, 0, 3), suites.get("S2"));
+  }
+}
@@ -0,0 +1,81 @@
+package org.trimble.plugins.unittest.parsers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.trimble.plugins.unittest.TestUtils;
+
+public class XunitFastScannerTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  String pathPrefix = "/org/sonar/plugins/reports-project/xunit-reports/";
+
+  private static void assertSameResults(UnitTestResults expected, UnitTestResults actual) {
+    assertEquals(expected.getTests(), actual.getTests());
+    assertEquals(expected.passed, actual.passed);
+    assertEquals(expected.getSkippedTests(), actual.getSkippedTests());
+    assertEquals(expected.getTestFailures(), actual.getTestFailures());
+    assertEquals(expected.getTestErrors(), actual.getTestErrors());
+    assertEquals(expected.getTestTime(), actual.getTestTime());
+  }
+
+  private void assertMatchesStaxParser(File report) {
+    UnitTestResults expected = new UnitTestResults();
+    UnitTestResults actual = new UnitTestResults();
+    boolean parsed = new XunitReportParser().parse(report, expected);
+    boolean scanned = XunitFastScanner.scan(report, actual);
+
+    assertEquals(report.getName(), parsed, scanned);
+    if (scanned) {
+      assertSameResults(expected, actual);
+    }
+  }
+
+  @Test
+  public void shouldMatchStaxParserOnReports() {
+    String[] reports = {"xunit-result-2.xml", "xunit-result-SAMPLE_with_fileName.xml", "xunit-result-SAMPLE.xml",
+      "xunit-result-skippedonly.xml", "xunit-result_with_emptyFileName.xml", "nested_testsuites.xml",
+      "invalid-time-xunit-report.xml"};
+    for (String report : reports) {
+      assertMatchesStaxParser(TestUtils.loadResource(pathPrefix + report));
+    }
+  }
+
+  @Test
+  public void shouldCountOnlyTestCasesOfParsedSuites() throws IOException {
+    File report = temp.newFile("report.xml");
+    Files.write(report.toPath(), ("<?xml version=\"1.0\"?>\n<!-- <testcase/> -->\n"
+      + "<testsuites><testcase name=\"orphan\"/>\n"
+      + "<testsuite name=\"a\"><properties><testsuite><testcase/></testsuite></properties>\n"
+      + "  <testcase name=\"t1\" time=\"1,234.5\"><system-out/><failure/></testcase>\n"
+      + "  <testcase name=\"t2\" time=\"0.0125\"><error message=\"x\"><![CDATA[<testcase/>]]></error></testcase>\n"
+      + "  <testsuite name=\"b\"><testcase name=\"t3\" status=\"notrun\" time=\"2\"/></testsuite>\n"
+      + "</testsuite></testsuites>").getBytes(StandardCharsets.UTF_8));
+
+    assertMatchesStaxParser(report);
+    UnitTestResults results = new UnitTestResults();
+    XunitFastScanner.scan(report, results);
+    assertEquals(3, results.getTests());
+    assertEquals(1, results.getTestErrors());
+  }
+
+  @Test
+  public void shouldGiveUpOnUnsupportedInput() throws IOException {
+    File report = temp.newFile("entity.xml");
+    Files.write(report.toPath(), "<testsuite><testcase time=\"&#49;\"/></testsuite>".getBytes(StandardCharsets.UTF_8));
+    UnitTestResults results = new UnitTestResults();
+
+    assertEquals(false, XunitFastScanner.scan(report, results));
+    assertEquals(false, XunitFastScanner.scan(TestUtils.loadResource(pathPrefix + "xunit-result-empty.xml"), results));
+    assertEquals(0, results.getTests());
+  }
+}
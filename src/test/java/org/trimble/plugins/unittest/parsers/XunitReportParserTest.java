@@ -3,11 +3,18 @@ package org.trimble.plugins.unittest.parsers;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.Settings;
 import org.trimble.plugins.unittest.TestUtils;
+import org.trimble.plugins.unittest.utils.TestCaseStore;
 
 public class XunitReportParserTest {
 
@@ -15,6 +22,9 @@ public class XunitReportParserTest {
 
   String pathPrefix = "/org/sonar/plugins/reports-project/xunit-reports/";
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void testParse() throws javax.xml.stream.XMLStreamException {
 
@@ -44,4 +54,138 @@ public class XunitReportParserTest {
       UnitTestResults results = new UnitTestResults();
       assertEquals(parserHandler.parse(report, results), false);
   }
+
+  @Test
+  public void shouldTransformReportsWithCompiledStylesheet() {
+    Settings settings = new Settings();
+    settings.setProperty(XunitReportParser.XSLT_URL_KEY, "cppunit-1.x-to-junit-1.0.xsl");
+    parserHandler = new XunitReportParser(settings);
+
+    for (int run = 0; run < 2; run++) {
+      File report = TestUtils.loadResource(pathPrefix + "cppunit-report.xml");
+      UnitTestResults results = new UnitTestResults();
+      assertEquals(true, parserHandler.parse(report, results));
+      assertEquals(5, results.getTests());
+      assertEquals(1, results.getTestFailures());
+      assertEquals(1, results.getTestErrors());
+    }
+  }
+
+  @Test
+  public void detailedParseShouldMatchCountingOnlyParse() {
+    File report = TestUtils.loadResource(pathPrefix + "xunit-result-2.xml");
+    UnitTestResults counted = new UnitTestResults();
+    UnitTestResults detailed = new UnitTestResults();
+    TestCaseStore testCases = new TestCaseStore();
+
+    assertEquals(true, parserHandler.parse(report, counted));
+    assertEquals(true, parserHandler.parse(report, detailed, testCases));
+
+    assertEquals(counted.getTests(), detailed.getTests());
+    assertEquals(counted.getTestFailures(), detailed.getTestFailures());
+    assertEquals(counted.getTestTime(), detailed.getTestTime());
+    assertEquals(5, testCases.size());
+    assertEquals("Component1Test:Component1Test/foo_failing", testCases.fullname(1));
+    assertEquals(true, testCases.isFailure(1));
+    assertEquals("Value of: 112\nExpected: bar.foo()\nWhich is: 111", testCases.message(1));
+    assertEquals(true, testCases.stackTrace(1).startsWith("test_component1.cc:18"));
+    assertEquals(true, testCases.isSkipped(3));
+    assertEquals(75, testCases.time(1));
+    assertEquals(null, testCases.message(0));
+  }
+
+  @Test
+  public void compressedReportsShouldBeParsedLikePlainOnes() throws IOException {
+    Settings fastScanner = new Settings();
+    fastScanner.setProperty(XunitReportParser.FAST_SCANNER_KEY, true);
+    Settings xslt = new Settings();
+    xslt.setProperty(XunitReportParser.XSLT_URL_KEY, "cppunit-1.x-to-junit-1.0.xsl");
+    File plain = TestUtils.loadResource(pathPrefix + "xunit-result-2.xml");
+    File cppunit = TestUtils.loadResource(pathPrefix + "cppunit-report.xml");
+    UnitTestResults expected = new UnitTestResults();
+    parserHandler.parse(plain, expected);
+
+    for (String extension : new String[] {"gz", "zst"}) {
+      File report = TestUtils.compress(plain, temp.getRoot(), extension);
+      for (XunitReportParser parser : new XunitReportParser[] {parserHandler, new XunitReportParser(fastScanner)}) {
+        UnitTestResults results = new UnitTestResults();
+        assertEquals(true, parser.parse(report, results));
+        assertEquals(expected.getTests(), results.getTests());
+        assertEquals(expected.getTestFailures(), results.getTestFailures());
+        assertEquals(expected.getTestTime(), results.getTestTime());
+      }
+      TestCaseStore testCases = new TestCaseStore();
+      assertEquals(true, parserHandler.parse(report, new UnitTestResults(), testCases));
+      assertEquals(5, testCases.size());
+
+      UnitTestResults transformed = new UnitTestResults();
+      assertEquals(true, new XunitReportParser(xslt).parse(TestUtils.compress(cppunit, temp.getRoot(), extension), transformed));
+      assertEquals(5, transformed.getTests());
+      assertEquals(1, transformed.getTestErrors());
+    }
+  }
+
+  @Test
+  public void testCaseTimesShouldBeTruncatedBeforeBeingSummed() throws IOException {
+    File report = temp.newFile();
+    Files.write(report.toPath(), ("<testsuite name=\"s\"><testcase name=\"a\" time=\"0.0015\"/>"
+      + "<testcase name=\"b\" time=\"0.0015\"/></testsuite>").getBytes(StandardCharsets.UTF_8));
+    UnitTestResults results = new UnitTestResults();
+
+    assertEquals(true, parserHandler.parse(report, results));
+    assertEquals(2L, (long) results.getTestTime());
+  }
+
+  @Test
+  public void failureDetailsShouldBeTruncated() throws IOException {
+    StringBuilder trace = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      trace.append("  at frame ").append(i).append('\n');
+    }
+    File report = temp.newFile();
+    Files.write(report.toPath(), ("<testsuite name=\"s\"><testcase name=\"t\"><failure message=\"m\"><![CDATA["
+      + trace + "]]></failure></testcase></testsuite>").getBytes(StandardCharsets.UTF_8));
+    TestCaseStore testCases = new TestCaseStore();
+
+    assertEquals(true, parserHandler.parse(report, new UnitTestResults(), testCases));
+    assertEquals("m", testCases.message(0));
+    assertEquals(true, testCases.stackTrace(0).startsWith("  at frame 0\n"));
+    assertEquals(true, testCases.stackTrace(0).endsWith("\n[truncated]"));
+    assertEquals(64 * 1024 + "\n[truncated]".length(), testCases.stackTrace(0).length());
+  }
+
+  private UnitTestResults parseWithRootSummary(String root) throws IOException {
+    File report = temp.newFile();
+    Files.write(report.toPath(), ("<?xml version=\"1.0\"?>\n" + root + "\n"
+      + "  <testsuite name=\"walked\"><testcase name=\"a\" time=\"0.5\"/></testsuite>\n"
+      + "</testsuites>").getBytes(StandardCharsets.UTF_8));
+    Settings settings = new Settings();
+    settings.setProperty(XunitReportParser.ROOT_SUMMARY_KEY, true);
+    UnitTestResults results = new UnitTestResults();
+    assertEquals(true, new XunitReportParser(settings).parse(report, results));
+    return results;
+  }
+
+  @Test
+  public void completeRootSummaryShouldBeUsedWithoutWalkingTestCases() throws IOException {
+    UnitTestResults results = parseWithRootSummary(
+      "<testsuites tests=\"40\" failures=\"3\" errors=\"2\" skipped=\"5\" time=\"12.5\">");
+
+    assertEquals(40, results.getTests());
+    assertEquals(3, results.getTestFailures());
+    assertEquals(2, results.getTestErrors());
+    assertEquals(5, (int) results.getSkippedTests());
+    assertEquals(12500L, (long) results.getTestTime());
+  }
+
+  @Test
+  public void incompleteOrInconsistentRootSummaryShouldFallBackToTheWalk() throws IOException {
+    assertEquals(1, parseWithRootSummary("<testsuites tests=\"40\" failures=\"3\" errors=\"2\" time=\"1\">").getTests());
+    assertEquals(1, parseWithRootSummary(
+      "<testsuites tests=\"4\" failures=\"3\" errors=\"2\" skipped=\"0\" time=\"1\">").getTests());
+    assertEquals(1, parseWithRootSummary(
+      "<testsuites tests=\"4\" failures=\"0\" errors=\"0\" skipped=\"0\" disabled=\"1\" time=\"1\">").getTests());
+    assertEquals(1, parseWithRootSummary(
+      "<testsuites tests=\"4\" failures=\"0\" errors=\"0\" skipped=\"0\" time=\"n/a\">").getTests());
+  }
 }
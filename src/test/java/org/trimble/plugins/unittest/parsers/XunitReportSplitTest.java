@@ -0,0 +1,101 @@
+package org.trimble.plugins.unittest.parsers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.trimble.plugins.unittest.TestUtils;
+
+public class XunitReportSplitTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private ExecutorService executor;
+
+  private static void assertSameResults(UnitTestResults expected, UnitTestResults actual) {
+    assertEquals(expected.getTests(), actual.getTests());
+    assertEquals(expected.passed, actual.passed);
+    assertEquals(expected.getSkippedTests(), actual.getSkippedTests());
+    assertEquals(expected.getTestFailures(), actual.getTestFailures());
+    assertEquals(expected.getTestErrors(), actual.getTestErrors());
+    assertEquals(expected.getTestTime(), actual.getTestTime());
+  }
+
+  private XunitReportParser splitParser(int threads) {
+    XunitReportParser parser = new XunitReportParser(1);
+    executor = Executors.newFixedThreadPool(threads);
+    parser.splitExecutor(executor, threads);
+    return parser;
+  }
+
+  @After
+  public void shutdownExecutor() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private File write(String content) throws IOException {
+    File report = temp.newFile();
+    Files.write(report.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return report;
+  }
+
+  @Test
+  public void splitParseShouldMatchSingleThreadedParse() throws IOException {
+    for (ReportGenerator.Format format : new ReportGenerator.Format[] {ReportGenerator.Format.XUNIT,
+      ReportGenerator.Format.GOOGLETEST}) {
+      File report = temp.newFile();
+      new ReportGenerator().testCases(5000).testCasesPerSuite(50).nestingDepth(2).errorRatio(0.05)
+        .skippedRatio(0.1).write(format, report);
+      UnitTestResults expected = new UnitTestResults();
+      UnitTestResults actual = new UnitTestResults();
+
+      assertEquals(true, new XunitReportParser().parse(report, expected));
+      assertEquals(true, splitParser(4).parseSplit(report, actual));
+      assertSameResults(expected, actual);
+    }
+  }
+
+  @Test
+  public void partsShouldBeStandaloneDocumentsCutAtTopLevelSuites() throws IOException {
+    File report = write("<?xml version=\"1.0\"?>\n<!-- <testsuite> -->\n<j:testsuites xmlns:j=\"urn:x\" name=\"a>b\">\n"
+      + "<properties/><testsuite name=\"1\"><testsuite><testcase/></testsuite></testsuite>\n"
+      + "<testsuite name=\"2\"><testcase><failure><![CDATA[</testsuite>]]></failure></testcase></testsuite>\n"
+      + "<testsuite name=\"3\"/>\n</j:testsuites>\n");
+
+    XunitReportSplit split = XunitReportSplit.split(report, 8);
+    assertEquals(3, split.parts());
+    assertEquals("<?xml version=\"1.0\"?>\n<!-- <testsuite> -->\n<j:testsuites xmlns:j=\"urn:x\" name=\"a>b\">"
+      + "<testsuite name=\"3\"/>\n</j:testsuites>", new String(IOUtils.toByteArray(split.part(2)), StandardCharsets.UTF_8));
+
+    UnitTestResults results = new UnitTestResults();
+    assertEquals(true, splitParser(2).parseSplit(report, results));
+    assertEquals(2, results.getTests());
+    assertEquals(1, results.getTestFailures());
+  }
+
+  @Test
+  public void shouldNotSplitUnsupportedReports() throws IOException {
+    assertNull(XunitReportSplit.split(write("<testsuite><testcase/></testsuite>"), 4));
+    assertNull(XunitReportSplit.split(write("<testsuites><testsuite/></testsuites>"), 4));
+    assertNull(XunitReportSplit.split(write("<!DOCTYPE testsuites [<!ENTITY s \"<testsuite/>\">]>"
+      + "<testsuites><testsuite/>&s;</testsuites>"), 4));
+    assertNull(XunitReportSplit.split(write("<testsuites><testsuite/><testsuite>"), 4));
+    File plain = write("<testsuites><testsuite/><testsuite/></testsuites>");
+    assertEquals(2, XunitReportSplit.split(plain, 4).parts());
+    assertNull(XunitReportSplit.split(TestUtils.compress(plain, temp.getRoot(), "gz"), 4));
+  }
+}
@@ -0,0 +1,46 @@
+package org.trimble.plugins.unittest.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DuplicateReportsTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File write(String name, String content) throws IOException {
+    File report = new File(temp.getRoot(), name);
+    report.getParentFile().mkdirs();
+    Files.write(report.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return report;
+  }
+
+  @Test
+  public void copiesShouldBeDroppedKeepingTheFirstOne() throws IOException {
+    File shard = write("shard1/report.xml", "<testsuite name=\"a\"/>");
+    File other = write("shard2/report.xml", "<testsuite name=\"b\"/>");
+    File longer = write("shard3/report.xml", "<testsuite name=\"abc\"/>");
+    File copy = write("aggregate/report.xml", "<testsuite name=\"a\"/>");
+    File leftover = write("shard1/report.xml.after_xslt", "<testsuite name=\"a\"/>");
+
+    assertEquals(Arrays.asList(copy, longer, other),
+      DuplicateReports.remove(Arrays.asList(copy, shard, longer, other, leftover)));
+  }
+
+  @Test
+  public void uniqueReportsShouldBeKept() throws IOException {
+    File a = write("a.xml", "<testsuite/>");
+    File b = write("b.xml", "<testsuites/>");
+
+    assertEquals(Arrays.asList(a, b), DuplicateReports.remove(Arrays.asList(a, b)));
+  }
+}
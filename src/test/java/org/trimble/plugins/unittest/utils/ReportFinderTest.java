@@ -0,0 +1,82 @@
+package org.trimble.plugins.unittest.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReportFinderTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private String base;
+
+  @Before
+  public void setUp() throws IOException {
+    File root = temp.getRoot();
+    base = root.getCanonicalPath() + File.separator;
+    for (String path : Arrays.asList("reports/TEST-a.xml", "reports/TEST-b.txt", "reports/a1/TEST-c.xml",
+      "reports/a1/deep/TEST-d.xml", "reports/ab/TEST-e.xml", "reports-old/TEST-f.xml", "build/x/y/TEST-g.xml",
+      "build/x/TEST-h.xml", "build/obj/TEST-i.xml", "TEST-j.xml", "[odd]/TEST-k.xml")) {
+      File file = new File(root, path);
+      file.getParentFile().mkdirs();
+      file.createNewFile();
+    }
+  }
+
+  private List<File> ant(String... patterns) {
+    DirectoryScanner scanner = new DirectoryScanner();
+    scanner.setIncludes(absolute(patterns).toArray(new String[patterns.length]));
+    scanner.scan();
+    Set<File> files = new TreeSet<>();
+    for (String file : scanner.getIncludedFiles()) {
+      files.add(new File(file));
+    }
+    return new ArrayList<>(files);
+  }
+
+  private List<String> absolute(String... patterns) {
+    List<String> includes = new ArrayList<>();
+    for (String pattern : patterns) {
+      includes.add(base + pattern.replace('/', File.separatorChar));
+    }
+    return includes;
+  }
+
+  private void assertSameAsAnt(String... patterns) {
+    assertEquals(ant(patterns), ReportFinder.find(absolute(patterns)));
+  }
+
+  @Test
+  public void shouldFindTheFilesAntFinds() {
+    assertSameAsAnt("**/TEST-*.xml");
+    assertSameAsAnt("reports/**/*.xml");
+    assertSameAsAnt("reports/a?/*.xml");
+    assertSameAsAnt("reports*/TEST-*");
+    assertSameAsAnt("reports/");
+    assertSameAsAnt("*.xml");
+    assertSameAsAnt("build/**/x/**");
+    assertSameAsAnt("reports/TEST-a.xml");
+    assertSameAsAnt("[odd]/*.xml");
+    assertSameAsAnt("missing/**/*.xml");
+  }
+
+  @Test
+  public void overlappingAndIndependentRootsShouldBeMerged() {
+    assertSameAsAnt("reports/**/*.xml", "reports/a1/**/*.xml", "build/x/*.xml", "reports-old/*.xml", "TEST-j.xml");
+    assertEquals(7, ReportFinder.find(absolute("reports/**/*.xml", "reports/a1/**/*.xml", "build/x/*.xml",
+      "reports-old/*.xml", "TEST-j.xml")).size());
+  }
+}
@@ -0,0 +1,103 @@
+package org.trimble.plugins.unittest.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.trimble.plugins.unittest.TestUtils;
+import org.trimble.plugins.unittest.utils.ReportStreams.Compression;
+
+public class ReportStreamsTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final File report = TestUtils.loadResource("/org/sonar/plugins/reports-project/xunit-reports/xunit-result-2.xml");
+
+  private static byte[] read(File file) throws IOException {
+    try (InputStream input = ReportStreams.open(file)) {
+      return IOUtils.toByteArray(input);
+    }
+  }
+
+  @Test
+  public void shouldDetectCompressionFromMagicBytes() throws IOException {
+    File renamed = temp.newFile("report.xml");
+    Files.copy(TestUtils.compress(report, temp.getRoot(), "gz").toPath(), renamed.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    assertEquals(Compression.NONE, ReportStreams.compression(report));
+    assertEquals(Compression.GZIP, ReportStreams.compression(renamed));
+    assertEquals(Compression.ZSTD, ReportStreams.compression(TestUtils.compress(report, temp.getRoot(), "zst")));
+    assertEquals(Compression.NONE, ReportStreams.compression(temp.newFile("empty.xml")));
+  }
+
+  @Test
+  public void shouldDecompressOnTheFly() throws IOException {
+    byte[] plain = Files.readAllBytes(report.toPath());
+
+    assertArrayEquals(plain, read(report));
+    assertArrayEquals(plain, read(TestUtils.compress(report, temp.getRoot(), "gz")));
+    assertArrayEquals(plain, read(TestUtils.compress(report, temp.getRoot(), "zst")));
+  }
+
+  @Test
+  public void largeReportsShouldBeReadAheadUnchanged() throws IOException {
+    byte[] content = new byte[5 * ReadAheadInputStream.CHUNK_SIZE + 123];
+    new Random(42).nextBytes(content);
+    File large = temp.newFile("large.xml");
+    Files.write(large.toPath(), content);
+
+    assertArrayEquals(content, read(large));
+    assertArrayEquals(content, read(TestUtils.compress(large, temp.getRoot(), "gz")));
+    try (InputStream head = ReportStreams.openHead(large)) {
+      assertArrayEquals(content, IOUtils.toByteArray(head));
+    }
+  }
+
+  @Test
+  public void closingShouldStopTheReadAhead() throws IOException {
+    File large = temp.newFile("large.xml");
+    Files.write(large.toPath(), new byte[8 * ReadAheadInputStream.CHUNK_SIZE]);
+
+    InputStream input = ReportStreams.open(large);
+    assertEquals(1024, IOUtils.read(input, new byte[1024]));
+    input.close();
+    try {
+      input.read();
+      fail("closed stream read");
+    } catch (IOException e) {
+      assertEquals("Stream closed", e.getMessage());
+    }
+    assertEquals(large.length(), read(large).length);
+  }
+
+  @Test
+  public void reportsShouldBeDigestedWhileRead() throws IOException {
+    File compressed = TestUtils.compress(report, temp.getRoot(), "gz");
+    ContentDigest digest = new ContentDigest();
+    try (InputStream input = ReportStreams.open(compressed, digest)) {
+      // the trailing bytes of small reports are digested on close
+      assertEquals(16, IOUtils.read(input, new byte[16]));
+    }
+    assertEquals(FileDigest.sha1(compressed), digest.value(compressed));
+
+    File large = temp.newFile("large.xml");
+    Files.write(large.toPath(), new byte[16 * ReadAheadInputStream.CHUNK_SIZE]);
+    ContentDigest partial = new ContentDigest();
+    try (InputStream input = ReportStreams.open(large, partial)) {
+      assertEquals(1024, IOUtils.read(input, new byte[1024]));
+    }
+    assertNull(partial.value(large));
+  }
+}
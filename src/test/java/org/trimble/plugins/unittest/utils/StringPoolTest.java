@@ -0,0 +1,39 @@
+package org.trimble.plugins.unittest.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class StringPoolTest {
+
+  @Test
+  public void equalValuesShouldShareOneInstance() {
+    StringPool pool = new StringPool(16);
+    String first = pool.intern(new String("FooTest"));
+
+    assertSame(first, pool.intern(new String("FooTest")));
+    assertSame(first, pool.intern(new String("FooTest")));
+    assertEquals("BarTest", pool.intern("BarTest"));
+    assertNull(pool.intern(null));
+
+    assertEquals(2, pool.size());
+    assertEquals(4, pool.lookups());
+    assertEquals(2, pool.hits());
+    assertEquals(50d, pool.hitRate(), 0.001);
+    assertEquals(2 * (40 + 2 * 7), pool.bytesSaved());
+  }
+
+  @Test
+  public void storesShouldShareThePooledNames() {
+    StringPool pool = new StringPool(16);
+    TestCaseStore first = new TestCaseStore(pool);
+    TestCaseStore second = new TestCaseStore(pool);
+    first.add("a", 0, TestCaseStore.STATUS_OK, "", "", first.intern(new String("Suite")), null, "Suite", null);
+    second.add("b", 0, TestCaseStore.STATUS_OK, "", "", second.intern(new String("Suite")), null, "Suite", null);
+
+    assertSame(first.classname(0), second.classname(0));
+    assertEquals("Suite/b", second.name(0));
+  }
+}
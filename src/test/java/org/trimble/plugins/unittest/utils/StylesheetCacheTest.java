@@ -0,0 +1,124 @@
+package org.trimble.plugins.unittest.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StylesheetCacheTest {
+
+  private static final String STYLESHEET = "<xsl:stylesheet version=\"1.0\""
+    + " xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\"><xsl:template match=\"/\"><%s/></xsl:template></xsl:stylesheet>";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private HttpServer server;
+  private volatile String content = String.format(STYLESHEET, "first");
+  private volatile String etag = "\"1\"";
+  private volatile int status = 200;
+  private final List<Integer> responses = new ArrayList<>();
+
+  @Before
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/to-junit.xsl", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        if (status != 200) {
+          respond(exchange, status, null);
+        } else if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+          respond(exchange, 304, null);
+        } else {
+          exchange.getResponseHeaders().set("ETag", etag);
+          respond(exchange, 200, content.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+    });
+    server.start();
+  }
+
+  private synchronized void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+    responses.add(status);
+    exchange.sendResponseHeaders(status, body == null ? -1 : body.length);
+    if (body != null) {
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    }
+    exchange.close();
+  }
+
+  @After
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  private String url() {
+    return "http://localhost:" + server.getAddress().getPort() + "/to-junit.xsl";
+  }
+
+  private String localCopy(File downloadDir) throws IOException {
+    File[] copies = downloadDir.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.endsWith(".xsl");
+      }
+    });
+    assertEquals(1, copies.length);
+    return new String(Files.readAllBytes(copies[0].toPath()), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void localCopiesShouldBeRevalidatedByLaterAnalyses() throws Exception {
+    File downloadDir = new File(temp.getRoot(), "xslt");
+
+    new StylesheetCache(downloadDir).get(url());
+    new StylesheetCache(downloadDir).get(url());
+    assertEquals(String.format(STYLESHEET, "first"), localCopy(downloadDir));
+
+    content = String.format(STYLESHEET, "second");
+    etag = "\"2\"";
+    new StylesheetCache(downloadDir).get(url());
+    assertEquals(String.format(STYLESHEET, "second"), localCopy(downloadDir));
+    assertEquals("[200, 304, 200]", responses.toString());
+
+    server.stop(0);
+    new StylesheetCache(downloadDir).get(url());
+    assertEquals(String.format(STYLESHEET, "second"), localCopy(downloadDir));
+  }
+
+  @Test
+  public void failedDownloadsShouldNotLeavePartialFiles() throws Exception {
+    File downloadDir = new File(temp.getRoot(), "xslt");
+    new StylesheetCache(downloadDir).get(url());
+
+    status = 500;
+    etag = "\"2\"";
+    new StylesheetCache(downloadDir).get(url());
+    assertEquals(String.format(STYLESHEET, "first"), localCopy(downloadDir));
+    assertEquals("[200, 500]", responses.toString());
+    assertEquals(0, downloadDir.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.endsWith(".part");
+      }
+    }).length);
+  }
+}
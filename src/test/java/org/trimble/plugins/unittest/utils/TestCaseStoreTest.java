@@ -0,0 +1,78 @@
+package org.trimble.plugins.unittest.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestCaseStoreTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void rowsShouldKeepTestCaseFallbacks() {
+    TestCaseStore store = new TestCaseStore();
+    store.add("a", 3, TestCaseStore.STATUS_OK, "", "", null, null, "Suite", "suite.cpp");
+    store.add("b", 5, TestCaseStore.STATUS_ERROR, "stack", "msg", "Other", "other.cpp", "Suite", "suite.cpp");
+
+    assertEquals(2, store.size());
+    assertEquals("Suite", store.classname(0));
+    assertEquals("suite.cpp", store.filename(0));
+    assertEquals("Suite:a", store.fullname(0));
+    assertNull(store.message(0));
+    assertEquals("Other", store.classname(1));
+    assertEquals("other.cpp", store.filename(1));
+    assertTrue(store.isError(1));
+    assertEquals(5, store.time(1));
+    assertEquals("msg", store.message(1));
+    assertEquals("stack", store.stackTrace(1));
+  }
+
+  @Test
+  public void sharedNamesShouldBeStoredOnce() {
+    TestCaseStore store = new TestCaseStore();
+    for (int i = 0; i < 1000; i++) {
+      store.add("test" + i, i, i % 2 == 0 ? TestCaseStore.STATUS_OK : TestCaseStore.STATUS_FAILURE, "",
+        "failed " + i, "Suite" + (i % 10), null, "Suite" + (i % 10), "suite.cpp");
+    }
+
+    assertEquals(1000, store.size());
+    assertEquals(10 + 1, store.dictionarySize());
+    assertEquals("Suite9/test999", store.name(999));
+    assertEquals(store.classnameId(3), store.classnameId(13));
+    assertEquals("failed 999", store.message(999));
+    assertNull(store.message(998));
+
+    TestFile testFile = new TestFile(null);
+    for (int row = 0; row < store.size(); row++) {
+      testFile.addTestCase(store, row);
+    }
+    assertEquals(1000, testFile.getTests());
+    assertEquals(500, testFile.getFailures());
+  }
+
+  @Test
+  public void detailsPastTheBudgetShouldBeSpilledAndReadBack() {
+    File spillDirectory = temp.getRoot();
+    TestCaseStore store = new TestCaseStore(null, 10 * 1024, spillDirectory);
+    for (int i = 0; i < 1000; i++) {
+      store.add("test" + i, i, TestCaseStore.STATUS_FAILURE, "at frame \u00e9 " + i, "failed " + i, null, null,
+        "Suite", "suite.cpp");
+    }
+
+    assertTrue(store.detailHeapBytes() <= 10 * 1024);
+    assertTrue(store.spilledDetailBytes() > 0);
+    assertEquals("failed 0", store.message(0));
+    assertEquals("failed 999", store.message(999));
+    assertEquals("at frame \u00e9 999", store.stackTrace(999));
+    assertEquals(1, spillDirectory.list().length);
+
+    store.close();
+    assertEquals(0, spillDirectory.list().length);
+  }
+}
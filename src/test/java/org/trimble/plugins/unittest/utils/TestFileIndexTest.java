@@ -0,0 +1,52 @@
+package org.trimble.plugins.unittest.utils;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+
+public class TestFileIndexTest {
+
+  private final File baseDir = new File("/project").getAbsoluteFile();
+  private final InputFile fooTest = inputFile("src/test/foo/FooTest.cpp");
+  private final InputFile otherFooTest = inputFile("src/test/bar/FooTest.cpp");
+  private final InputFile barTest = inputFile("src/test/bar/BarTest.java");
+  private final TestFileIndex index = new TestFileIndex(Arrays.asList(fooTest, otherFooTest, barTest));
+
+  private InputFile inputFile(String relativePath) {
+    return new DefaultInputFile("module", relativePath).setModuleBaseDir(baseDir.toPath());
+  }
+
+  private static TestCase testCase(String classname, String filename) {
+    return new TestCase("name", 0, "ok", "", "", classname, filename, "suite", null);
+  }
+
+  @Test
+  public void filenamesShouldBeMatchedOnPathSuffix() {
+    assertSame(fooTest, index.resolve(testCase(null, "foo/FooTest.cpp")));
+    assertSame(otherFooTest, index.resolve(testCase(null, "..\\bar\\FooTest.cpp")));
+    assertSame(barTest, index.resolve(testCase(null, "BarTest.java")));
+    assertSame(barTest, index.resolve(testCase(null, new File(baseDir, "src/test/bar/BarTest.java").getPath())));
+    assertNull(index.resolve(testCase(null, "FooTest.cpp")));
+    assertNull(index.resolve(testCase(null, "oo/FooTest.cpp")));
+  }
+
+  @Test
+  public void classnamesShouldBeMatchedOnFileNameAndPackage() {
+    assertSame(barTest, index.resolve(testCase("org.example.BarTest$Nested", null)));
+    assertSame(fooTest, index.resolve(testCase("foo::FooTest", null)));
+    assertSame(otherFooTest, index.resolve(testCase("test.bar.FooTest", null)));
+    assertNull(index.resolve(testCase("FooTest", null)));
+    assertNull(index.resolve(testCase("Unknown", null)));
+  }
+
+  @Test
+  public void unresolvedFilenameShouldFallBackToClassname() {
+    assertSame(barTest, index.resolve(testCase("BarTest", "generated/BarTest.xml")));
+  }
+}
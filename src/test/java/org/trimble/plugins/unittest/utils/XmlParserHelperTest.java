@@ -0,0 +1,94 @@
+package org.trimble.plugins.unittest.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class XmlParserHelperTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private XmlParserHelper helper(String content) throws Exception {
+    File file = temp.newFile();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return new XmlParserHelper(file);
+  }
+
+  @Test
+  public void attributesShouldBeResolvedPerElement() throws Exception {
+    StringBuilder wide = new StringBuilder("<child");
+    for (int i = 0; i < 100; i++) {
+      wide.append(" a").append(i).append("=\"").append(i).append('"');
+    }
+    wide.append("/>");
+    XmlParserHelper helper = helper("<root total=\"12\" name=\"r\">" + wide + "<last x=\"y\"/></root>");
+    try {
+      helper.checkRootTag("root");
+      assertEquals(12, helper.getRequiredIntAttribute("total"));
+      assertEquals("r", helper.getAttribute("name"));
+      assertNull(helper.getAttribute("a1"));
+
+      assertEquals("child", helper.nextTag());
+      assertFalse(helper.isAttributePresent("total"));
+      assertEquals(0, helper.getRequiredIntAttribute("a0"));
+      assertEquals("57", helper.getAttribute("a57"));
+      assertEquals(99, helper.getRequiredIntAttribute("a99"));
+
+      assertEquals("last", helper.nextTag());
+      assertTrue(helper.isAttributePresent("x"));
+      assertNull(helper.getAttribute("a57"));
+    } finally {
+      helper.close();
+    }
+  }
+
+  @Test
+  public void attributesShouldBeFoundAfterMovingTheStreamDirectly() throws Exception {
+    XmlParserHelper helper = helper("<root total=\"2\"><other failures=\"1\"/></root>");
+    try {
+      helper.checkRootTag("root");
+      assertEquals(2, helper.getRequiredIntAttribute("total"));
+
+      helper.stream().nextTag();
+      assertEquals("other", helper.stream().getLocalName());
+      assertEquals(1, helper.getRequiredIntAttribute("failures"));
+      assertNull(helper.getAttribute("total"));
+    } finally {
+      helper.close();
+    }
+  }
+
+  @Test
+  public void invalidOrMissingIntegersShouldBeReported() throws Exception {
+    XmlParserHelper helper = helper("<root total=\"1x\"/>");
+    try {
+      helper.checkRootTag("root");
+      try {
+        helper.getRequiredIntAttribute("total");
+        fail();
+      } catch (XMLStreamException e) {
+        assertTrue(e.getMessage().contains("Expected an integer instead of \"1x\""));
+      }
+      try {
+        helper.getRequiredIntAttribute("failures");
+        fail();
+      } catch (XMLStreamException e) {
+        assertTrue(e.getMessage().contains("Missing attribute \"failures\""));
+      }
+    } finally {
+      helper.close();
+    }
+  }
+}
@@ -0,0 +1,23 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+  <xsl:output method="xml" indent="no" encoding="UTF-8"/>
+  <xsl:template match="/TestRun">
+    <testsuite name="cppunit" tests="{Statistics/Tests}" failures="{Statistics/Failures}" errors="{Statistics/Errors}">
+      <xsl:for-each select="FailedTests/FailedTest">
+        <testcase name="{Name}">
+          <xsl:choose>
+            <xsl:when test="FailureType = 'Error'">
+              <error message="{Message}"><xsl:value-of select="Message"/></error>
+            </xsl:when>
+            <xsl:otherwise>
+              <failure message="{Message}"><xsl:value-of select="Message"/></failure>
+            </xsl:otherwise>
+          </xsl:choose>
+        </testcase>
+      </xsl:for-each>
+      <xsl:for-each select="SuccessfulTests/Test">
+        <testcase name="{Name}"/>
+      </xsl:for-each>
+    </testsuite>
+  </xsl:template>
+</xsl:stylesheet>